@@ -0,0 +1,13 @@
+package sudoku;
+
+/**
+ * Shared settings of all benchmarks, which are run from the project directory.
+ */
+final class Benchmarks {
+
+    static final String GAMES_DIR = "src/main/resources/games";
+
+    private Benchmarks() {
+    }
+
+}
@@ -0,0 +1,78 @@
+package sudoku;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Copying, parsing and candidate queries of boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BoardBenchmark {
+
+    @Param({"sudoku1.sd"})
+    public String puzzle;
+
+    private Path path;
+    private Sudoku game;
+    private Sudoku target;
+    private final int[] candidates = new int[Sudoku.CELL_COUNT];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        path = Paths.get(Benchmarks.GAMES_DIR, puzzle);
+        game = new Sudoku();
+        game.parseFromFile(path);
+        target = new Sudoku();
+    }
+
+    @Benchmark
+    public Sudoku copyConstructor() {
+        return new Sudoku(game);
+    }
+
+    @Benchmark
+    public Sudoku copyInto() {
+        game.copyInto(target);
+        return target;
+    }
+
+    @Benchmark
+    public int isValidAllFields() {
+        int valid = 0;
+        for (int y = 0; y < Sudoku.GRID_DIM; y++) {
+            for (int x = 0; x < Sudoku.GRID_DIM; x++) {
+                for (int val = 1; val <= Sudoku.GRID_DIM; val++) {
+                    if (game.isValid(x, y, val)) valid++;
+                }
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int[] allCandidates() {
+        game.getAllCandidates(candidates);
+        return candidates;
+    }
+
+    @Benchmark
+    public Sudoku parseFromFile() {
+        Sudoku parsed = new Sudoku();
+        parsed.parseFromFile(path);
+        return parsed;
+    }
+
+}
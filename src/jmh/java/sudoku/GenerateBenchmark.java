@@ -0,0 +1,57 @@
+package sudoku;
+
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Generator runs with a fixed seed, so every invocation does the same work.
+ * generate measures the step loop of a single chain, chains adds the executor
+ * and the exchanges of a multi chain run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GenerateBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"sudoku1.sd"})
+    public String puzzle;
+
+    @Param({"300"})
+    public int steps;
+
+    @Param({"2"})
+    public int chains;
+
+    private Sudoku base;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        base = new Sudoku();
+        base.parseFromFile(Paths.get(Benchmarks.GAMES_DIR, puzzle));
+        Ranker.setRankCache(null);
+    }
+
+    @Benchmark
+    public Sudoku generate() {
+        return Generator.run(new Sudoku(base), steps, new Random(SEED));
+    }
+
+    @Benchmark
+    public Sudoku chains() {
+        return Generator.runChains(new Sudoku(base), steps, chains, SEED);
+    }
+
+}
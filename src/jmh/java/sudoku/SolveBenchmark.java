@@ -0,0 +1,80 @@
+package sudoku;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Solving and ranking of the sample games, ordered from easy to hard.
+ * The steps counter is reported as a rate next to ops/s, their ratio is the steps per solve.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SolveBenchmark {
+
+    @Param({"game02.sd", "sudoku5.sd", "sudoku0.sd", "sudoku1.sd", "sudoku3.sd", 
+            "sudoku4.sd", "sudoku7.sd", "unsolvablesudoku2.sd"})
+    public String puzzle;
+
+    @Param({"MASK", "DLX"})
+    public String solverType;
+
+    private Sudoku game;
+    private Sudoku board;
+    private Solver solver;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Steps {
+        public long steps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = new Sudoku();
+        game.parseFromFile(Paths.get(Benchmarks.GAMES_DIR, puzzle));
+        board = new Sudoku();
+        solver = Solver.Type.valueOf(solverType).create();
+        Ranker.setSolverType(Solver.Type.valueOf(solverType));
+        // every invocation ranks the same game, the cache would turn this into a lookup
+        Ranker.setRankCache(null);
+    }
+
+    @Benchmark
+    public int solveSingle(Steps counter) {
+        game.copyInto(board);
+        int solutions = solver.solve(board, false, false);
+        counter.steps += solver.getSteps();
+        return solutions;
+    }
+
+    @Benchmark
+    public int solveAll(Steps counter) {
+        game.copyInto(board);
+        int solutions = solver.solve(board, true, false);
+        counter.steps += solver.getSteps();
+        return solutions;
+    }
+
+    @Benchmark
+    public float rank() {
+        return Ranker.rankSudoku(game, false);
+    }
+
+}
@@ -0,0 +1,105 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Streams a file with one game per line through a pool of workers.
+ * Lines contain one character per field (81 for a 9x9 game), '1' - '9' and 'A' - 'P'
+ * for set fields and '0' or '.' for empty ones,
+ * empty lines and lines starting with '#' are skipped. Anything after the game and
+ * a blank, such as the rank BULK writes behind every game, is ignored.
+ * Results are written in input order as the game followed by the result:
+ * the solution ('-' if there is none) or the rank.
+ * Games whose solve exceeds the solve budget of the Ranker are answered with "timeout".
+ * Games run through a BoundedPipeline, so memory use does not depend on the size of the input.
+ */
+class BatchProcessor {
+
+    public enum Operation { SOLVE, RANK; }
+
+    private final Operation operation;
+    private final int threads;
+    private final ThreadLocal<Sudoku> boards = ThreadLocal.withInitial(Sudoku::new);
+    private final ThreadLocal<Solver> solvers = ThreadLocal.withInitial(Solver.Type.MASK::create);
+
+    public BatchProcessor(Operation operation, int threads) {
+        if (operation == null) throw new IllegalArgumentException("Given operation must not be null");
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be >= 1");
+        this.operation = operation;
+        this.threads = threads;
+    }
+
+    /** processes all games of the input and returns the number of processed games */
+    public long process(Path input, Writer out) {
+        if (input == null || !Files.exists(input))
+            throw new IllegalArgumentException("Given file does not exist: " + input);
+        if (out == null) throw new IllegalArgumentException("Given writer must not be null");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        BoundedPipeline<String> pipeline = new BoundedPipeline<>(executor, threads, result -> {
+            out.write(result);
+            out.write('\n');
+        });
+        long count = 0;
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String game = gameOf(line);
+
+                pipeline.submit(() -> processLine(game));
+                count++;
+            }
+            pipeline.finish();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Processing batch file failed: " + input, e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return count;
+    }
+
+    /** returns the game of a trimmed, non empty batch line: the text up to the first whitespace */
+    static String gameOf(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (Character.isWhitespace(line.charAt(i))) return line.substring(0, i);
+        }
+        return line;
+    }
+
+    private String processLine(String line) {
+        Sudoku game = boards.get();
+        try {
+            game.parseFromLine(line);
+        } catch (RuntimeException e) {
+            return line + " invalid";
+        }
+
+        switch (operation) {
+            case RANK:
+                float rank = Ranker.rankSudoku(game, false);
+                return line + " " + (Float.isNaN(rank) ? "timeout" : rank);
+            default:
+                SolveResult result = game.solve(solvers.get(), 1, Ranker.getSolveBudget());
+                Metrics metrics = Metrics.getActive();
+                if (metrics != null) metrics.recordSolve(result.getStats());
+                if (!result.isComplete()) return line + " timeout";
+                if (result.getSolutions() > 0) return line + " " + game.toLine();
+                return line + " -";
+        }
+    }
+
+}
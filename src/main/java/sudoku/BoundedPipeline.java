@@ -0,0 +1,52 @@
+package sudoku;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks on an executor and hands their results to a sink in submission order.
+ * At most QUEUE_PER_THREAD tasks per worker thread are in flight: submitting waits
+ * for the oldest result while the pipeline is full, so memory use does not depend
+ * on the number of tasks.
+ */
+class BoundedPipeline<T> {
+
+    /** tasks in flight per worker thread */
+    public static final int QUEUE_PER_THREAD = 64;
+
+    /** receives the results of the pipeline */
+    interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final Sink<T> sink;
+    private final int maxPending;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+    public BoundedPipeline(ExecutorService executor, int threads, Sink<T> sink) {
+        if (executor == null) throw new IllegalArgumentException("Given executor must not be null");
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be >= 1");
+        if (sink == null) throw new IllegalArgumentException("Given sink must not be null");
+        this.executor = executor;
+        this.sink = sink;
+        this.maxPending = threads * QUEUE_PER_THREAD;
+    }
+
+    /** submits the given task, first passing on results while the pipeline is full */
+    public void submit(Callable<T> task) throws IOException, InterruptedException, ExecutionException {
+        pending.add(executor.submit(task));
+        while (pending.size() >= maxPending) sink.accept(pending.poll().get());
+    }
+
+    /** waits for all submitted tasks and passes on their results */
+    public void finish() throws IOException, InterruptedException, ExecutionException {
+        while (!pending.isEmpty()) sink.accept(pending.poll().get());
+    }
+
+}
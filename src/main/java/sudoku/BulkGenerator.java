@@ -0,0 +1,98 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates many unique games from one base game on a pool of workers,
+ * each digging holes into its own shuffled copy of the base with its own random generator.
+ * The base is solved once, every game is dug from a shuffled copy of its full grid.
+ * Games with equal canonical forms (see Canonicalizer) are only written once.
+ * Every game is written as soon as it is found, as a line in the batch format
+ * followed by its rank, so the order of the games depends on the thread timing.
+ */
+class BulkGenerator {
+
+    /** attempts per requested game after which generation gives up on finding new games */
+    private static final int MAX_ATTEMPTS_PER_GAME = 10;
+
+    private final int threads;
+    private final int targetClues;
+    private final Generator.Symmetry symmetry;
+
+    public BulkGenerator(int threads, int targetClues, Generator.Symmetry symmetry) {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be >= 1");
+        if (symmetry == null) throw new IllegalArgumentException("Given symmetry must not be null");
+        this.threads = threads;
+        this.targetClues = targetClues;
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * Writes the given number of distinct games generated from the base to out
+     * and returns the number written, which is lower if too many duplicates were found.
+     */
+    public int generate(Sudoku base, int count, long seed, Writer out) {
+        if (base == null) throw new IllegalArgumentException("Given game must not be null");
+        if (count < 0) throw new IllegalArgumentException("Number of games must be >= 0");
+        if (out == null) throw new IllegalArgumentException("Given writer must not be null");
+
+        Set<String> seen = new HashSet<>();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        int maxAttempts = count * MAX_ATTEMPTS_PER_GAME;
+        Random seeds = new Random(seed);
+        Sudoku grid = new Sudoku(base);
+        Generator.prepareBase(grid);
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random rnd = new Random(seeds.nextLong());
+            Sudoku workerGrid = new Sudoku(grid);
+            workers.add(() -> {
+                while (written.get() < count && attempts.incrementAndGet() <= maxAttempts) {
+                    // the full grid is only read, every game is dug from a shuffled copy
+                    Sudoku game = Generator.digHoles(workerGrid, targetClues, symmetry, rnd.nextLong());
+                    String key = Canonicalizer.canonicalForm(game);
+                    synchronized (seen) {
+                        if (written.get() >= count || !seen.add(key)) continue;
+                    }
+                    String line = game.toLine() + " " + Ranker.rankSudoku(game, false) + "\n";
+                    synchronized (out) {
+                        // another worker may have completed the count while ranking
+                        if (written.get() >= count) break;
+                        out.write(line);
+                        written.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> result : executor.invokeAll(workers)) result.get();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Bulk generation failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return written.get();
+    }
+
+}
@@ -0,0 +1,30 @@
+package sudoku;
+
+/**
+ * Lets another thread stop running solves that were given a budget with this token.
+ * A token with a parent is also cancelled once its parent is, so one token can stop
+ * the solves of a single request and its parent those of a whole server.
+ */
+class CancellationToken {
+
+    private final CancellationToken parent;
+    private volatile boolean cancelled;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    /** creates a token that is also cancelled by the given parent, which may be null */
+    public CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+}
@@ -0,0 +1,193 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the canonical form of the initial fields of a game: the lexicographically
+ * smallest line over all transpositions, band and stack permutations, row permutations
+ * within bands, column permutations within stacks and digit relabelings.
+ * Games are equivalent exactly if their canonical forms are equal.
+ * The columns are chosen before the rows: column orders no row of which can start
+ * the best form found so far are skipped, and the bands are placed one at a time,
+ * stopping as soon as their rows make the form larger than the best one.
+ * Boards with boxes larger than FULL_GROUP_MAX_BOX_SIZE have too many symmetries to
+ * search, they are only normalized under transposition and relabeling.
+ */
+class Canonicalizer {
+
+    /** largest box size searched over all line permutations */
+    public static final int FULL_GROUP_MAX_BOX_SIZE = 3;
+
+    private final int boxSize;
+    private final int n;
+    private final boolean full;
+    /** permutations of the lines of a band or stack */
+    private final int[][] perms;
+    /** initial field values of the current orientation */
+    private final int[] grid;
+    private final int[] rowOrder;
+    private final int[] colOrder;
+    /** digit labels after each band position, the next free label is kept in slot 0 */
+    private final int[][] labels;
+    /** whether the candidate is smaller than the best form before each band position */
+    private final boolean[] smaller;
+    private final int[] candidate;
+    private int[] best;
+
+    private Canonicalizer(int boxSize) {
+        this.boxSize = boxSize;
+        this.n = boxSize * boxSize;
+        this.full = boxSize <= FULL_GROUP_MAX_BOX_SIZE;
+        this.perms = full ? permutations(boxSize) : new int[][] { identity(boxSize) };
+        this.grid = new int[n * n];
+        this.rowOrder = new int[n];
+        this.colOrder = new int[n];
+        this.labels = new int[boxSize + 1][n + 1];
+        this.smaller = new boolean[boxSize + 1];
+        this.candidate = new int[n * n];
+    }
+
+    /** returns the canonical form of the initial fields of the given game as a line */
+    public static String canonicalForm(Sudoku game) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        return new Canonicalizer(game.getBoxSize()).search(game);
+    }
+
+    private String search(Sudoku game) {
+        for (int t = 0; t < 2; t++) {
+            boolean transpose = t == 1;
+            for (int y = 0; y < n; y++) {
+                for (int x = 0; x < n; x++) {
+                    int fx = transpose ? y : x;
+                    int fy = transpose ? x : y;
+                    grid[y * n + x] = game.isInitial(fx, fy) ? game.getField(fx, fy) : 0;
+                }
+            }
+            placeColumns(0, 0);
+        }
+
+        StringBuilder bld = new StringBuilder(best.length);
+        for (int value : best) {
+            if (value == 0) bld.append('.');
+            else if (value <= 9) bld.append(value);
+            else bld.append((char) ('A' + value - 10));
+        }
+        return bld.toString();
+    }
+
+    /** places a stack at the given position with each order of its columns */
+    private void placeColumns(int position, int usedStacks) {
+        if (position == boxSize) {
+            smaller[0] = best == null;
+            placeRows(0, 0);
+            return;
+        }
+        for (int stack = 0; stack < boxSize; stack++) {
+            if ((usedStacks & (1 << stack)) != 0 || (!full && stack != position)) continue;
+            for (int[] perm : perms) {
+                for (int j = 0; j < boxSize; j++) colOrder[position * boxSize + j] = stack * boxSize + perm[j];
+                if (best != null && !firstRowCanMatch((position + 1) * boxSize)) continue;
+                placeColumns(position + 1, usedStacks | (1 << stack));
+            }
+        }
+    }
+
+    /**
+     * true if the first fields of some row are not larger than those of the first row
+     * of the best form: the digits of the first row are always labeled 1, 2, 3, ...
+     * so only the positions of its empty fields matter
+     */
+    private boolean firstRowCanMatch(int length) {
+        for (int y = 0; y < n; y++) {
+            int row = y * n;
+            int label = 0;
+            int x = 0;
+            for (; x < length; x++) {
+                int value = grid[row + colOrder[x]] == 0 ? 0 : ++label;
+                if (value != best[x]) break;
+            }
+            if (x == length || grid[row + colOrder[x]] == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * places a band at the given position with each order of its rows,
+     * relabeling its digits and comparing its rows with the best form right away
+     */
+    private void placeRows(int position, int usedBands) {
+        if (position == boxSize) {
+            if (smaller[position]) {
+                if (best == null) best = new int[n * n];
+                System.arraycopy(candidate, 0, best, 0, best.length);
+                // the best form now shares the prefix of every open position
+                Arrays.fill(smaller, false);
+            }
+            return;
+        }
+        for (int band = 0; band < boxSize; band++) {
+            if ((usedBands & (1 << band)) != 0 || (!full && band != position)) continue;
+            for (int[] perm : perms) {
+                for (int j = 0; j < boxSize; j++) rowOrder[position * boxSize + j] = band * boxSize + perm[j];
+                if (fillBand(position)) placeRows(position + 1, usedBands | (1 << band));
+            }
+        }
+    }
+
+    /**
+     * writes the relabeled rows of the band at the given position into the candidate,
+     * returns false if they make it larger than the best form
+     */
+    private boolean fillBand(int position) {
+        int[] labels = this.labels[position + 1];
+        System.arraycopy(this.labels[position], 0, labels, 0, labels.length);
+        boolean less = smaller[position];
+        for (int y = position * boxSize; y < (position + 1) * boxSize; y++) {
+            int row = rowOrder[y] * n;
+            for (int x = 0; x < n; x++) {
+                int value = grid[row + colOrder[x]];
+                if (value != 0) {
+                    // the next free label is kept in slot 0
+                    if (labels[value] == 0) labels[value] = ++labels[0];
+                    value = labels[value];
+                }
+                int i = y * n + x;
+                candidate[i] = value;
+                if (!less) {
+                    if (value > best[i]) return false;
+                    if (value < best[i]) less = true;
+                }
+            }
+        }
+        smaller[position + 1] = less;
+        return true;
+    }
+
+    private static int[] identity(int size) {
+        int[] perm = new int[size];
+        for (int i = 0; i < size; i++) perm[i] = i;
+        return perm;
+    }
+
+    /** returns all permutations of 0 .. size - 1 */
+    private static int[][] permutations(int size) {
+        List<int[]> perms = new ArrayList<>();
+        permute(identity(size), 0, perms);
+        return perms.toArray(new int[perms.size()][]);
+    }
+
+    private static void permute(int[] perm, int from, List<int[]> perms) {
+        if (from == perm.length) {
+            perms.add(perm.clone());
+            return;
+        }
+        for (int i = from; i < perm.length; i++) {
+            int tmp = perm[from]; perm[from] = perm[i]; perm[i] = tmp;
+            permute(perm, from + 1, perms);
+            tmp = perm[from]; perm[from] = perm[i]; perm[i] = tmp;
+        }
+    }
+
+}
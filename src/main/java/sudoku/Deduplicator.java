@@ -0,0 +1,184 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Groups the games of a directory of game files or of a batch file into classes of
+ * equivalent games by their canonical form and ranks one game per class only.
+ * Batch files are read like in BatchProcessor. Games are canonicalized on a pool of
+ * workers through a BoundedPipeline while the input is read; only the classes are kept in memory.
+ * Every class is written as a line with its rank, its number of games and the games,
+ * file names for a directory and file name and line number for a batch file,
+ * in the order the classes first appear in the input.
+ */
+class Deduplicator {
+
+    /** a class of equivalent games */
+    private static final class Group {
+        /** the first game of the class as a line */
+        final String game;
+        final List<String> entries = new ArrayList<>();
+        float rank;
+
+        Group(String game) {
+            this.game = game;
+        }
+    }
+
+    /** a parsed game with its canonical form, canonical is null if the game is invalid */
+    private static final class Entry {
+        final String name;
+        final String game;
+        final String canonical;
+
+        Entry(String name, String game, String canonical) {
+            this.name = name;
+            this.game = game;
+            this.canonical = canonical;
+        }
+    }
+
+    private final int threads;
+    private final ThreadLocal<Sudoku> boards = ThreadLocal.withInitial(Sudoku::new);
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    private int games;
+
+    public Deduplicator(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be >= 1");
+        this.threads = threads;
+    }
+
+    /**
+     * Deduplicates the games of the given directory or batch file, writes the classes
+     * to out and prints a summary with the highest ranking class.
+     * @return the number of classes
+     */
+    public int dedup(Path input, Writer out) {
+        if (input == null || !Files.exists(input))
+            throw new IllegalArgumentException("Given file does not exist: " + input);
+        if (out == null) throw new IllegalArgumentException("Given writer must not be null");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            if (Files.isDirectory(input)) readDirectory(input, executor);
+            else readBatch(input, executor);
+
+            List<Group> classes = new ArrayList<>(groups.values());
+            List<Callable<Float>> tasks = new ArrayList<>();
+            for (Group group : classes) {
+                tasks.add(() -> {
+                    Sudoku game = boards.get();
+                    game.parseFromLine(group.game);
+                    return Ranker.rankSudoku(game, false);
+                });
+            }
+            List<Future<Float>> ranks = executor.invokeAll(tasks);
+
+            Group highest = null;
+            for (int i = 0; i < classes.size(); i++) {
+                Group group = classes.get(i);
+                group.rank = ranks.get(i).get();
+                out.write(group.rank + " " + group.entries.size() + " "
+                        + String.join(" ", group.entries) + "\n");
+                // the first of several equal ranks wins, interrupted ranks (NaN) never do
+                if (highest == null ? !Float.isNaN(group.rank) : group.rank < highest.rank) highest = group;
+            }
+            out.flush();
+
+            System.err.println(games + " game(s) in " + classes.size() + " class(es)");
+            if (highest != null)
+                System.err.println("Highest ranking Sudoku: " + highest.rank + " : " + highest.entries.get(0));
+            return classes.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Deduplicating failed: " + input, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void readDirectory(Path dir, ExecutorService executor)
+            throws IOException, InterruptedException, ExecutionException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.sd")) {
+            for (Path entry : stream) {
+                if (Files.isRegularFile(entry)) files.add(entry);
+            }
+        }
+        Collections.sort(files);
+
+        BoundedPipeline<Entry> pipeline = new BoundedPipeline<>(executor, threads, this::add);
+        for (Path file : files) {
+            pipeline.submit(() -> {
+                Sudoku game = boards.get();
+                try {
+                    game.parseFromFile(file);
+                } catch (RuntimeException e) {
+                    return new Entry(file.toString(), null, null);
+                }
+                return new Entry(file.toString(), game.toLine(), Canonicalizer.canonicalForm(game));
+            });
+        }
+        pipeline.finish();
+    }
+
+    private void readBatch(Path batch, ExecutorService executor)
+            throws IOException, InterruptedException, ExecutionException {
+        BoundedPipeline<Entry> pipeline = new BoundedPipeline<>(executor, threads, this::add);
+        try (BufferedReader in = Files.newBufferedReader(batch, StandardCharsets.US_ASCII)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String game = BatchProcessor.gameOf(line);
+
+                String name = batch + ":" + lineNumber;
+                pipeline.submit(() -> {
+                    Sudoku board = boards.get();
+                    try {
+                        board.parseFromLine(game);
+                    } catch (RuntimeException e) {
+                        return new Entry(name, null, null);
+                    }
+                    return new Entry(name, game, Canonicalizer.canonicalForm(board));
+                });
+            }
+        }
+        pipeline.finish();
+    }
+
+    private void add(Entry entry) {
+        if (entry.canonical == null) {
+            System.err.println("Skipping invalid game: " + entry.name);
+            return;
+        }
+        games++;
+        Group group = groups.get(entry.canonical);
+        if (group == null) {
+            group = new Group(entry.game);
+            groups.put(entry.canonical, group);
+        }
+        group.entries.add(entry.name);
+    }
+
+}
@@ -0,0 +1,281 @@
+package sudoku;
+
+import java.util.function.Consumer;
+
+/**
+ * Dancing links implementation of Algorithm X on the Sudoku exact cover matrix.
+ * For a board of n x n fields the matrix has 4 * n * n columns (cell, row-digit,
+ * column-digit and box-digit constraints) and n * n * n rows, one for every digit
+ * in every cell, 324 columns and 729 rows for the standard board.
+ * It is built once per solver instance and board size; initial fields are selected before
+ * the search and unselected afterwards, so the instance can be reused for many games.
+ */
+class DlxSolver implements Solver {
+
+    /** node 0 is the root, nodes 1 - columns the column headers */
+    private static final int ROOT = 0;
+
+    private Layout layout;
+    private int n;
+    private int cells;
+
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    /** matrix row of every node */
+    private int[] rowOf;
+    private int[] size;
+    /** first node of every matrix row */
+    private int[] rowStart;
+    private boolean[] covered;
+
+    /** selected matrix rows, initial fields first */
+    private int[] selected;
+    private int[] solution;
+
+    private Sudoku game;
+    private int maxSolutions;
+    private boolean verbose;
+    /** receives every solution found, may be null */
+    private Consumer<int[]> solutionConsumer;
+    private final SolveStats stats = new SolveStats();
+    private SolveBudget budget = SolveBudget.UNLIMITED;
+    private long deadline;
+    private boolean interrupted;
+    private int solutions;
+    private int givens;
+
+    public DlxSolver() {
+        build(Layout.STANDARD);
+    }
+
+    /** builds the matrix for boards of the given size */
+    private void build(Layout layout) {
+        this.layout = layout;
+        n = layout.dim;
+        cells = layout.cells;
+        int columns = 4 * cells;
+        int rows = cells * n;
+        int nodes = 1 + columns + 4 * rows;
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        rowOf = new int[nodes];
+        size = new int[columns + 1];
+        rowStart = new int[rows];
+        covered = new boolean[columns + 1];
+        selected = new int[cells];
+        solution = new int[cells];
+
+        for (int c = 0; c <= columns; c++) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+
+        int node = columns + 1;
+        for (int r = 0; r < rows; r++) {
+            int cell = r / n;
+            int d = r % n;
+            int[] cols = {
+                1 + cell,
+                1 + cells + layout.row[cell] * n + d,
+                1 + 2 * cells + layout.col[cell] * n + d,
+                1 + 3 * cells + layout.box[cell] * n + d
+            };
+
+            rowStart[r] = node;
+            for (int k = 0; k < 4; k++) {
+                int c = cols[k];
+                int n = node + k;
+                column[n] = c;
+                rowOf[n] = r;
+                left[n] = node + (k + 3) % 4;
+                right[n] = node + (k + 1) % 4;
+                // append at the bottom of the column
+                up[n] = up[c];
+                down[n] = c;
+                down[up[c]] = n;
+                up[c] = n;
+                size[c]++;
+            }
+            node += 4;
+        }
+    }
+
+    @Override
+    public void setSolutionConsumer(Consumer<int[]> solutionConsumer) {
+        this.solutionConsumer = solutionConsumer;
+    }
+
+    @Override
+    public int solve(Sudoku game, int maxSolutions, boolean verbose) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (maxSolutions < 1) throw new IllegalArgumentException("Solution limit must be >= 1");
+        if (game.getLayout() != layout) build(game.getLayout());
+        this.game = game;
+        this.maxSolutions = maxSolutions;
+        this.verbose = verbose;
+        stats.reset();
+        solutions = 0;
+        interrupted = false;
+        long start = System.nanoTime();
+        deadline = budget.deadline();
+
+        givens = 0;
+        boolean consistent = true;
+        for (int y = 0; y < n && consistent; y++) {
+            for (int x = 0; x < n && consistent; x++) {
+                if (!game.isInitial(x, y)) continue;
+                int r = (y * n + x) * n + game.getField(x, y) - 1;
+                if (isCoverable(r)) {
+                    selectRow(rowStart[r]);
+                    selected[givens++] = r;
+                } else {
+                    consistent = false;
+                }
+            }
+        }
+
+        if (consistent) search(givens);
+        stats.elapsedNanos = System.nanoTime() - start;
+
+        // restore the matrix for the next game
+        for (int k = givens - 1; k >= 0; k--) unselectRow(rowStart[selected[k]]);
+
+        if (maxSolutions == 1 && solutions > 0) game.fillNonInitial(solution);
+        else game.clearNonInitial();
+
+        this.game = null;
+        return solutions;
+    }
+
+    @Override
+    public void setBudget(SolveBudget budget) {
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    @Override
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    /** returns true and marks the solve as interrupted if the budget is used up */
+    private boolean outOfBudget() {
+        if (budget.isExceeded(stats.steps, deadline)) interrupted = true;
+        return interrupted;
+    }
+
+    /** returns true if the search should stop */
+    private boolean search(int depth) {
+        if (right[ROOT] == ROOT) return foundSolution(depth);
+
+        // choose the column with the fewest remaining rows
+        int c = right[ROOT];
+        for (int j = right[c]; j != ROOT && size[c] > 1; j = right[j]) {
+            if (size[j] < size[c]) c = j;
+        }
+        if (size[c] == 0) return false;
+        if (size[c] == 1) stats.propagations++;
+        if (depth - givens + 1 > stats.maxDepth) stats.maxDepth = depth - givens + 1;
+
+        cover(c);
+        for (int r = down[c]; r != c; r = down[r]) {
+            if (outOfBudget()) {
+                uncover(c);
+                return true;
+            }
+            stats.steps++;
+            selected[depth] = rowOf[r];
+            for (int j = right[r]; j != r; j = right[j]) cover(column[j]);
+            boolean stop = search(depth + 1);
+            for (int j = left[r]; j != r; j = left[j]) uncover(column[j]);
+            if (stop) {
+                uncover(c);
+                return true;
+            }
+            stats.backtracks++;
+        }
+        uncover(c);
+        return false;
+    }
+
+    private boolean foundSolution(int depth) {
+        solutions++;
+        if (solutions == 1 || verbose || solutionConsumer != null) {
+            for (int k = 0; k < depth; k++) {
+                int r = selected[k];
+                solution[r / n] = r % n + 1;
+            }
+        }
+        if (solutionConsumer != null) solutionConsumer.accept(solution);
+        if (verbose) {
+            game.fillNonInitial(solution);
+            System.out.println("Solution found:\n" + game);
+        }
+        return solutions >= maxSolutions;
+    }
+
+    private boolean isCoverable(int r) {
+        int n = rowStart[r];
+        for (int k = 0; k < 4; k++) {
+            if (covered[column[n + k]]) return false;
+        }
+        return true;
+    }
+
+    private void selectRow(int n) {
+        int j = n;
+        do {
+            cover(column[j]);
+            j = right[j];
+        } while (j != n);
+    }
+
+    private void unselectRow(int n) {
+        int j = left[n];
+        do {
+            uncover(column[j]);
+            j = left[j];
+        } while (j != left[n]);
+    }
+
+    private void cover(int c) {
+        covered[c] = true;
+        left[right[c]] = left[c];
+        right[left[c]] = right[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+        covered[c] = false;
+    }
+
+}
@@ -2,10 +2,18 @@ package sudoku;
 
 import java.util.Scanner; 
 import java.util.InputMismatchException;
+import java.util.List;
 
 public class Game {
 
     private static Scanner in; 
+    private static Solver.Type solverType = Solver.Type.MASK;
+
+    /** selects the solver engine used to find solutions */
+    public static void setSolverType(Solver.Type type) {
+        if (type == null) throw new IllegalArgumentException("Given solver type must not be null");
+        solverType = type;
+    }
 
     private static void printMenu() {
         System.out.print("\n" +
@@ -14,9 +22,12 @@ public class Game {
                 "3. Find single solution\n" +
                 "4. Find all solutions\n" +
                 "5. Rank Sudoku\n" +
-                "6. Print game\n" +
-                "7. Exit\n\n" +
-                "Select an action [1-7]: ");
+                "6. Hint\n" +
+                "7. Check if still solvable\n" +
+                "8. List conflicts\n" +
+                "9. Print game\n" +
+                "10. Exit\n\n" +
+                "Select an action [1-10]: ");
     }   
 
     private static int requestInt(String msg, int min, int max) {
@@ -45,6 +56,8 @@ public class Game {
         if (game == null) throw new IllegalArgumentException("Given game must not be null!");
         boolean exit = false;
         System.out.println(game);
+        // solves at most once per diverging move, hints and checks use its cached solution
+        HintEngine hints = new HintEngine(game, solverType.create(), Ranker.getSolveBudget());
 
         in = new Scanner(System.in);
 
@@ -56,29 +69,35 @@ public class Game {
 
             switch(action) {
                 case 1:
-                   x = requestInt("x coordinate", 0, 8);
-                   y = requestInt("y coordinate", 0, 8);
-                   val = requestInt("field value", 1, 9);
+                   x = requestInt("x coordinate", 0, game.getGridDim() - 1);
+                   y = requestInt("y coordinate", 0, game.getGridDim() - 1);
+                   val = requestInt("field value", 1, game.getGridDim());
                    if(!game.setField(x,y,val)) {
                        System.out.println(val + " is not allowed at " + x + "x" + y);
+                   } else if(hints.check() == HintEngine.Status.UNSOLVABLE) {
+                       System.out.println("Warning: the game cannot be solved anymore");
                    }
                    System.out.println(game);
                    break;
                 case 2:
-                   x = requestInt("x coordinate", 0, 8);
-                   y = requestInt("y coordinate", 0, 8);
+                   x = requestInt("x coordinate", 0, game.getGridDim() - 1);
+                   y = requestInt("y coordinate", 0, game.getGridDim() - 1);
                    game.clearField(x,y);
                    System.out.println(game);
                    break;
                 case 3:
-                   gameToSolve = new Sudoku(game);
-                   sol = gameToSolve.solve(false, true);
-                   if(sol == 0) System.out.println("No solution found!");
-                   else System.out.println(sol + " solution(s) found!");
+                   int[] solution = hints.getSolution();
+                   if(solution == null) {
+                       System.out.println("No solution found!");
+                   } else {
+                       gameToSolve = new Sudoku(game);
+                       gameToSolve.fillNonInitial(solution);
+                       System.out.println(gameToSolve);
+                   }
                    break;
                 case 4:
                    gameToSolve = new Sudoku(game);
-                   sol = gameToSolve.solve(true, true);
+                   sol = gameToSolve.solve(solverType.create(), true, true);
                    if(sol == 0) System.out.println("No solution found!");
                    else System.out.println(sol + " solution(s) found!");
                    break;
@@ -86,9 +105,26 @@ public class Game {
                    System.out.println("Rank: " + Ranker.rankSudoku(game, true));
                    break;
                 case 6:
-                   System.out.println(game);
+                   HintEngine.Field hint = hints.hint();
+                   if(hint == null) System.out.println("No hint available!");
+                   else System.out.println("Hint: " + hint);
                    break;
                 case 7:
+                   switch(hints.check()) {
+                       case SOLVABLE: System.out.println("Game can still be solved"); break;
+                       case UNSOLVABLE: System.out.println("Game cannot be solved anymore"); break;
+                       default: System.out.println("Solve limit exceeded, solvability unknown"); break;
+                   }
+                   break;
+                case 8:
+                   List<HintEngine.Field> conflicts = hints.conflicts();
+                   if(conflicts.isEmpty()) System.out.println("No conflicts found!");
+                   for(HintEngine.Field conflict : conflicts) System.out.println(conflict);
+                   break;
+                case 9:
+                   System.out.println(game);
+                   break;
+                case 10:
                    exit = true;
                    break;
                 default:
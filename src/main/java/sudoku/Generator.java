@@ -1,69 +1,370 @@
 package sudoku;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 class Generator {
 
+    /** 
+     * clue patterns kept by dig holes generation: NONE, point symmetric to the center,
+     * mirrored at the vertical axis or mirrored at the main diagonal
+     */
+    public enum Symmetry { NONE, ROTATIONAL, MIRROR, DIAGONAL; }
+
     public static final int DEFAULT_STEPS = 300;
+    /** fewest clues a standard game with a unique solution can have, the default dig target */
+    public static final int MIN_CLUES = 17;
     private static final double ACCEPTANCE_PROBABILITY = 0.1;
+    private static final double MAX_ACCEPTANCE_PROBABILITY = 0.5;
+    /** number of steps the chains of a multi chain run advance between exchanges */
+    private static final int EXCHANGE_INTERVAL = 25;
     private static final Random rnd = new Random();
 
     public static Sudoku run(Sudoku game, int steps) {
-        // solve to have a base to start with
-        if(game.solve(false, false) <= 0) {
-            System.err.println("Given base game must be solvable!");
-            System.exit(1);
+        return run(game, steps, Ranker.getSolutionCap());
+    }
+
+    /**
+     * Runs the generator counting at most solutionCap solutions per candidate,
+     * which bounds the time spent on candidates with many solutions.
+     */
+    public static Sudoku run(Sudoku game, int steps, int solutionCap) {
+        return run(game, steps, solutionCap, rnd, null);
+    }
+
+    /**
+     * Runs the generator until the given steps are done or the given token is cancelled,
+     * a cancelled run returns the game reached so far.
+     */
+    public static Sudoku run(Sudoku game, int steps, CancellationToken token) {
+        return run(game, steps, Ranker.getSolutionCap(), rnd, token);
+    }
+
+    /**
+     * Runs the generator with the given random generator,
+     * runs with equally seeded generators produce the same game.
+     */
+    public static Sudoku run(Sudoku game, int steps, Random rnd) {
+        return run(game, steps, rnd, null);
+    }
+
+    /** runs the generator with the given random generator until the token, which may be null, is cancelled */
+    public static Sudoku run(Sudoku game, int steps, Random rnd, CancellationToken token) {
+        if (rnd == null) throw new IllegalArgumentException("Given random generator must not be null");
+        return run(game, steps, Ranker.getSolutionCap(), rnd, token);
+    }
+
+    private static Sudoku run(Sudoku game, int steps, int solutionCap, Random rnd, CancellationToken token) {
+        prepareBase(game);
+        Chain chain = new Chain(0, game, rnd, ACCEPTANCE_PROBABILITY, solutionCap);
+        chain.advance(steps, token);
+        return chain.game;
+    }
+
+    /**
+     * Runs the given number of independent generator chains on separate threads
+     * and returns the best ranked game any of them has seen.
+     * Every chain has its own random generator derived from the seed and its own acceptance
+     * probability, from ACCEPTANCE_PROBABILITY for the first chain up to MAX_ACCEPTANCE_PROBABILITY.
+     * Every EXCHANGE_INTERVAL steps neighbouring chains swap their games if the chain accepting
+     * more worse modifications holds the better one (parallel tempering).
+     * Runs with the same seed and number of chains produce the same game.
+     */
+    public static Sudoku runChains(Sudoku game, int steps, int chains, long seed) {
+        return runChains(game, steps, chains, seed, null);
+    }
+
+    /**
+     * Runs the chains until the given steps are done or the given token, which may be null,
+     * is cancelled; a cancelled run returns the best game seen so far.
+     */
+    public static Sudoku runChains(Sudoku game, int steps, int chains, long seed, CancellationToken token) {
+        if (chains < 1) throw new IllegalArgumentException("Number of chains must be >= 1");
+        prepareBase(game);
+
+        int solutionCap = Ranker.getSolutionCap();
+        Random seeds = new Random(seed);
+        List<Chain> chainList = new ArrayList<>();
+        for (int i = 0; i < chains; i++) {
+            double acceptance = ACCEPTANCE_PROBABILITY;
+            if (chains > 1)
+                acceptance += (MAX_ACCEPTANCE_PROBABILITY - ACCEPTANCE_PROBABILITY) * i / (chains - 1);
+            chainList.add(new Chain(i, game, new Random(seeds.nextLong()), acceptance, solutionCap));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(chains);
+        try {
+            for (int done = 0; done < steps; done += EXCHANGE_INTERVAL) {
+                if (token != null && token.isCancelled()) break;
+                int segment = Math.min(EXCHANGE_INTERVAL, steps - done);
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (Chain chain : chainList) {
+                    tasks.add(() -> {
+                        chain.advance(segment, token);
+                        return null;
+                    });
+                }
+                for (Future<Void> result : executor.invokeAll(tasks)) result.get();
+
+                for (int i = chains - 1; i > 0; i--) {
+                    Chain colder = chainList.get(i - 1);
+                    Chain hotter = chainList.get(i);
+                    if (hotter.score < colder.score) colder.swapWith(hotter);
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Generator chain failed", e);
+        } finally {
+            executor.shutdown();
         }
 
+        Chain best = chainList.get(0);
+        for (Chain chain : chainList) {
+            if (chain.bestScore < best.bestScore) best = chain;
+        }
+        return best.best;
+    }
+
+    /**
+     * Generates a game with a unique solution by removing clues from a full grid.
+     * The solved base game is shuffled by transformations keeping it valid (digit relabeling,
+     * swapping rows within bands, bands, columns within stacks and stacks),
+     * then clues are removed in random order, a group of fields at a time following
+     * the given symmetry, as long as the game keeps a single solution.
+     * Removal stops once the game has at most targetClues clues or no group
+     * can be removed anymore, so the result may have more clues than targeted.
+     * Runs with the same base and seed produce the same game.
+     * A full grid is used as it is and left unchanged, so callers digging many games
+     * from one base solve it once with prepareBase; other games are solved first.
+     */
+    public static Sudoku digHoles(Sudoku game, int targetClues, Symmetry symmetry, long seed) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (targetClues < 0 || targetClues > game.getCellCount())
+            throw new IllegalArgumentException("Target clues must be between 0 and " 
+                    + game.getCellCount());
+        if (symmetry == null) throw new IllegalArgumentException("Given symmetry must not be null");
+        if (game.countFreeFields() > 0) prepareBase(game);
+
+        Random rnd = new Random(seed);
+        Sudoku dug = shuffledGrid(game, rnd);
+        // the thread's solver keeps its search stacks across dug games
+        try (SolveWorkspace workspace = SolveWorkspace.acquire()) {
+            Solver solver = workspace.solver(Solver.Type.MASK);
+            solver.setBudget(SolveBudget.UNLIMITED);
+            Metrics metrics = Metrics.getActive();
+
+            int n = dug.getGridDim();
+            List<int[]> groups = symmetryGroups(symmetry, n);
+            Collections.shuffle(groups, rnd);
+            int clues = dug.getCellCount();
+            // symmetric groups hold at most a field and its mate
+            int[] removed = new int[2];
+            for (int[] group : groups) {
+                if (clues <= targetClues) break;
+                if (clues - group.length < targetClues) continue;
+
+                for (int k = 0; k < group.length; k++) {
+                    removed[k] = dug.getField(group[k] % n, group[k] / n);
+                    dug.clearField(group[k] % n, group[k] / n);
+                }
+                // stopping at the second solution is enough to know it is not unique
+                boolean unique = dug.countSolutions(solver, 2) == 1;
+                if (metrics != null) metrics.recordSolve(solver.getStats());
+                if (unique) {
+                    clues -= group.length;
+                } else {
+                    for (int k = 0; k < group.length; k++) {
+                        dug.setFieldUnchecked(group[k], removed[k], true);
+                    }
+                }
+            }
+        }
+        return dug;
+    }
+
+    /** returns a copy of the given full grid with its digits, rows and columns shuffled */
+    private static Sudoku shuffledGrid(Sudoku grid, Random rnd) {
+        int n = grid.getGridDim();
+        int[] digits = permutation(n, rnd);
+        int[] rows = linePermutation(grid.getBoxSize(), rnd);
+        int[] columns = linePermutation(grid.getBoxSize(), rnd);
+
+        Sudoku shuffled = new Sudoku(grid.getBoxSize());
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                int value = grid.getField(columns[x], rows[y]);
+                shuffled.setFieldUnchecked(y * n + x, digits[value - 1] + 1, true);
+            }
+        }
+        return shuffled;
+    }
+
+    /** permutation of the rows or columns of a grid keeping every band or stack together */
+    private static int[] linePermutation(int sub, Random rnd) {
+        int[] bands = permutation(sub, rnd);
+        int[] lines = new int[sub * sub];
+        for (int b = 0; b < sub; b++) {
+            int[] within = permutation(sub, rnd);
+            for (int l = 0; l < sub; l++) lines[b * sub + l] = bands[b] * sub + within[l];
+        }
+        return lines;
+    }
+
+    private static int[] permutation(int size, Random rnd) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) values.add(i);
+        Collections.shuffle(values, rnd);
+        int[] perm = new int[size];
+        for (int i = 0; i < size; i++) perm[i] = values.get(i);
+        return perm;
+    }
+
+    /** splits all field indices into the groups the given symmetry removes together */
+    private static List<int[]> symmetryGroups(Symmetry symmetry, int n) {
+        boolean[] grouped = new boolean[n * n];
+        List<int[]> groups = new ArrayList<>();
+        for (int i = 0; i < n * n; i++) {
+            if (grouped[i]) continue;
+            int x = i % n;
+            int y = i / n;
+            int mate;
+            switch (symmetry) {
+                case ROTATIONAL: mate = (n - 1 - y) * n + (n - 1 - x); break;
+                case MIRROR: mate = y * n + (n - 1 - x); break;
+                case DIAGONAL: mate = x * n + y; break;
+                default: mate = i;
+            }
+            grouped[i] = true;
+            grouped[mate] = true;
+            groups.add(mate == i ? new int[] { i } : new int[] { i, mate });
+        }
+        return groups;
+    }
+
+    /** solves the given game and makes all its fields initial, throws if it has no solution */
+    static void prepareBase(Sudoku game) {
+        // solve to have a base to start with
+        if(game.solve(false, false) <= 0)
+            throw new IllegalArgumentException("Given base game must be solvable");
+
         game.makeAllInitial(); // this is important for all following solving algorithms
-            
-        float prevScore = Ranker.rankSudoku(game, false);
-
-        for(int i = 0; i < steps; i++) {
-            //System.out.println("Step " + i);
-            Sudoku modGame = new Sudoku(game);
-            generatorStep(modGame);
-            float modScore = Ranker.rankSudoku(modGame, false);
-            
-            if(keepModifications(prevScore, modScore)) {
-                prevScore = modScore;
-                game = modGame;
-                
-                //System.out.println("rank: " + prevScore);
-                //System.out.println(game);
+    }
+
+    /** a single generator chain modifying its game one field at a time */
+    private static class Chain {
+
+        private final int index;
+        private final Random rnd;
+        private final double acceptance;
+        /** ranks candidates by solution count, null when ranking by techniques */
+        private IncrementalRanker ranker;
+
+        private Sudoku game;
+        // the two boards are swapped on acceptance instead of copying a new one each step
+        private Sudoku modGame = new Sudoku();
+        private float score;
+        private final Sudoku best;
+        private float bestScore;
+        private int stepsDone;
+
+        Chain(int index, Sudoku base, Random rnd, double acceptance, int solutionCap) {
+            this.index = index;
+            this.rnd = rnd;
+            this.acceptance = acceptance;
+            if (Ranker.getRankFunction() == Ranker.RankFunction.SOLUTIONS)
+                ranker = new IncrementalRanker(solutionCap);
+            game = new Sudoku(base);
+            score = ranker != null ? ranker.reset(game) : Ranker.rankByTechniques(game, false);
+            best = new Sudoku(game);
+            bestScore = score;
+        }
+
+        /** advances the given steps or until the given token, which may be null, is cancelled */
+        void advance(int steps, CancellationToken token) {
+            Metrics metrics = Metrics.getActive();
+            for(int i = 0; i < steps; i++) {
+                if (token != null && token.isCancelled()) return;
+                //System.out.println("Step " + i);
+                game.copyInto(modGame);
+                int field = generatorStep(modGame, rnd);
+                float modScore = ranker != null 
+                        ? ranker.rankCandidate(modGame, field % modGame.getGridDim(), field / modGame.getGridDim())
+                        : Ranker.rankByTechniques(modGame, false);
+
+                boolean keep = keepModifications(score, modScore, acceptance, rnd);
+                if(keep) {
+                    if (ranker != null) ranker.accept(modGame);
+                    score = modScore;
+                    Sudoku prevGame = game;
+                    game = modGame;
+                    modGame = prevGame;
+
+                    if (score < bestScore) {
+                        bestScore = score;
+                        game.copyInto(best);
+                    }
+                    //System.out.println("rank: " + score);
+                    //System.out.println(game);
+                }
+                if (metrics != null) metrics.recordGeneratorStep(index, stepsDone, keep, score);
+                stepsDone++;
             }
         }
 
-        return game;
+        /** exchanges the current games of both chains */
+        void swapWith(Chain other) {
+            Sudoku otherGame = other.game;
+            float otherScore = other.score;
+            IncrementalRanker otherRanker = other.ranker;
+            other.game = game;
+            other.score = score;
+            other.ranker = ranker;
+            game = otherGame;
+            score = otherScore;
+            ranker = otherRanker;
+        }
     }
 
-    private static void generatorStep(Sudoku modGame) {
-        int x = rnd.nextInt(9);
-        int y = rnd.nextInt(9);
-        
+    /** modifies a random field of the given game and returns its index y * dim + x */
+    private static int generatorStep(Sudoku modGame, Random rnd) {
+        int n = modGame.getGridDim();
+        int x = rnd.nextInt(n);
+        int y = rnd.nextInt(n);
+
         if(modGame.isSet(x,y)) {
             modGame.clearField(x,y);
         } else {
-            int val = rnd.nextInt(9) + 1;
+            int val = rnd.nextInt(n) + 1;
             int count = 20;
             while (count > 0 && !modGame.setField(x,y,val)) {
-                val = rnd.nextInt(9) + 1;
+                val = rnd.nextInt(n) + 1;
                 count--;
             }
         }
 
         modGame.makeAllInitial();
+        return y * n + x;
     }
 
-    private static boolean keepModifications(float prevScore, float modScore) {
-        if (modScore <= prevScore) { // keep if new score is better
+    private static boolean keepModifications(float prevScore, float modScore,
+            double acceptance, Random rnd) {
+        if (Float.isNaN(modScore)) { // never keep games whose solve exceeded the budget
+            return false;
+        } else if (modScore <= prevScore) { // keep if new score is better
             return true;
         } else { // maybe keep if new score is worse
-            if (modScore != Float.MAX_VALUE && rnd.nextDouble() <= ACCEPTANCE_PROBABILITY)
+            if (modScore != Float.MAX_VALUE && rnd.nextDouble() <= acceptance)
                 return true;
             else
                 return false;
         }
     }
-    
+
 }
@@ -0,0 +1,161 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers hint, solvability and conflict queries for a game while it is played.
+ * Keeps a solution that agrees with all fields set so far and only solves again
+ * once a set field differs from it, so most queries are a single scan of the board.
+ * Boards known to have no solution are remembered as well, setting more fields
+ * on such a board never needs a solve.
+ */
+class HintEngine {
+
+    /** solvability of the current board */
+    public enum Status { SOLVABLE, UNSOLVABLE, UNKNOWN; }
+
+    /** a field and the value it should have */
+    public static final class Field {
+        public final int x;
+        public final int y;
+        /** value the field should have, 0 if no value fits */
+        public final int value;
+
+        Field(int x, int y, int value) {
+            this.x = x;
+            this.y = y;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return x + "x" + y + (value == 0 ? " has no possible value" : " should be " + value);
+        }
+    }
+
+    private final Sudoku game;
+    private final Solver solver;
+    private final SolveBudget budget;
+    private final Sudoku work = new Sudoku();
+
+    /** solution agreeing with the last solvable board, null if none was found yet */
+    private int[] solution;
+    /** set fields of the last board without solution, null if there was none */
+    private int[] deadEnd;
+    private int[] candidates;
+
+    public HintEngine(Sudoku game, Solver solver, SolveBudget budget) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (solver == null) throw new IllegalArgumentException("Given solver must not be null");
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
+        this.game = game;
+        this.solver = solver;
+        this.budget = budget;
+    }
+
+    /** returns whether the current board can still be solved, solving only if it left the cached solution */
+    public Status check() {
+        int cells = game.getCellCount();
+        if (solution != null && solution.length != cells) solution = null;
+        if (deadEnd != null && deadEnd.length != cells) deadEnd = null;
+        if (solution != null && agrees(solution)) return Status.SOLVABLE;
+        if (deadEnd != null && contains(deadEnd)) return Status.UNSOLVABLE;
+
+        game.copyInto(work);
+        work.makeAllInitial();
+        SolveResult result = work.solve(solver, 1, budget);
+        if (!result.isComplete()) return Status.UNKNOWN;
+        if (result.getSolutions() == 0) {
+            deadEnd = fields(game, deadEnd);
+            return Status.UNSOLVABLE;
+        }
+        solution = fields(work, solution);
+        return Status.SOLVABLE;
+    }
+
+    /**
+     * Returns the solution of the current board indexed by y * dim + x
+     * or null if the board has no solution or the solve exceeded the budget.
+     * The array is owned by the engine and changes with later queries.
+     */
+    public int[] getSolution() {
+        return check() == Status.SOLVABLE ? solution : null;
+    }
+
+    /**
+     * Returns an empty field and its value in the solution, preferring fields with
+     * a single candidate, or null if the board is full or has no known solution.
+     */
+    public Field hint() {
+        if (check() != Status.SOLVABLE) return null;
+        int dim = game.getGridDim();
+        if (candidates == null || candidates.length != game.getCellCount())
+            candidates = new int[game.getCellCount()];
+        if (game.getAllCandidates(candidates) == 0) return null;
+
+        int first = -1;
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i] == 0) continue;
+            if (Integer.bitCount(candidates[i]) == 1) return new Field(i % dim, i / dim, solution[i]);
+            if (first < 0) first = i;
+        }
+        return new Field(first % dim, first / dim, solution[first]);
+    }
+
+    /**
+     * Lists the fields making the board unsolvable: set fields whose value differs from
+     * the last solution that agreed with the board, and empty fields no value fits.
+     * The list is empty if the board can be solved or its solve exceeded the budget.
+     */
+    public List<Field> conflicts() {
+        List<Field> conflicts = new ArrayList<>();
+        if (check() != Status.UNSOLVABLE) return conflicts;
+
+        int dim = game.getGridDim();
+        for (int y = 0; y < dim; y++) {
+            for (int x = 0; x < dim; x++) {
+                int value = game.getField(x, y);
+                int expected = solution == null ? 0 : solution[y * dim + x];
+                if (value == 0 && game.getCandidates(x, y) == 0) {
+                    conflicts.add(new Field(x, y, 0));
+                } else if (value != 0 && expected != 0 && value != expected && !game.isInitial(x, y)) {
+                    conflicts.add(new Field(x, y, expected));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /** true if every set field of the board has the value given for it */
+    private boolean agrees(int[] fields) {
+        int dim = game.getGridDim();
+        for (int y = 0; y < dim; y++) {
+            for (int x = 0; x < dim; x++) {
+                int value = game.getField(x, y);
+                if (value != 0 && value != fields[y * dim + x]) return false;
+            }
+        }
+        return true;
+    }
+
+    /** true if every field set in the given values is set to the same value on the board */
+    private boolean contains(int[] fields) {
+        int dim = game.getGridDim();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != 0 && game.getField(i % dim, i / dim) != fields[i]) return false;
+        }
+        return true;
+    }
+
+    /** copies the field values of the given board into target, allocated if null */
+    private static int[] fields(Sudoku board, int[] target) {
+        int dim = board.getGridDim();
+        if (target == null || target.length != board.getCellCount()) target = new int[board.getCellCount()];
+        for (int y = 0; y < dim; y++) {
+            for (int x = 0; x < dim; x++) target[y * dim + x] = board.getField(x, y);
+        }
+        return target;
+    }
+
+}
@@ -0,0 +1,197 @@
+package sudoku;
+
+/**
+ * Ranks a game that changes one field at a time, reusing the solutions of the previous game.
+ * All set fields of the ranked games are expected to be initial, as in the generator,
+ * and all games ranked after a reset must have the size of the game it was given.
+ *
+ * Setting a free field keeps exactly those known solutions having that value there,
+ * so no search is needed as long as all solutions of the previous game are known.
+ * Clearing a field can only add solutions, so a game that already reached the
+ * solution cap stays at the cap. Every other change falls back to a full solve,
+ * unless the rank cache of the Ranker already knows the game has no or too many solutions.
+ * A full solve exceeding the solve budget of the Ranker ranks the game as Float.NaN.
+ */
+class IncrementalRanker {
+
+    /** maximum number of solutions kept per game */
+    public static final int MAX_CACHED_SOLUTIONS = 4096;
+
+    private final int solutionCap;
+    /** number of fields of the ranked games, set on reset */
+    private int cells = Sudoku.CELL_COUNT;
+    private final MaskSolver solver = new MaskSolver();
+    private final Sudoku scratch = new Sudoku();
+
+    /** the game of the last accepted rank */
+    private final Sudoku current = new Sudoku();
+    private final Solutions currentSolutions = new Solutions();
+    private int currentFree;
+
+    private final Solutions candidateSolutions = new Solutions();
+    private int candidateFree;
+
+    /** number of ranks computed without a search */
+    private int incrementalRanks;
+    private int fullRanks;
+
+    public IncrementalRanker(int solutionCap) {
+        if (solutionCap < 1) throw new IllegalArgumentException("Solution cap must be >= 1");
+        this.solutionCap = solutionCap;
+        solver.setSolutionConsumer(values -> candidateSolutions.add(values));
+    }
+
+    /** ranks the given game from scratch and makes it the current game */
+    public float reset(Sudoku game) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        // stored solutions of another board size must not be copied around
+        currentSolutions.clear();
+        cells = game.getCellCount();
+        fullRank(game);
+        accept(game);
+        if (currentSolutions.interrupted) return Float.NaN;
+        return currentSolutions.rank(currentFree);
+    }
+
+    /**
+     * Ranks the given candidate, which differs from the current game at most at the given field.
+     * The result only becomes the current state once accept is called.
+     */
+    public float rankCandidate(Sudoku candidate, int x, int y) {
+        if (candidate == null) throw new IllegalArgumentException("Given game must not be null");
+        int idx = y * candidate.getGridDim() + x;
+        int before = current.getField(x, y);
+        int after = candidate.getField(x, y);
+
+        if (before == after) {
+            candidateSolutions.copyFrom(currentSolutions);
+            candidateFree = currentFree;
+            countIncrementalRank();
+        } else if (before == 0 && currentSolutions.isComplete()) {
+            candidateSolutions.copyMatching(currentSolutions, idx, after);
+            candidateFree = currentFree - 1;
+            countIncrementalRank();
+        } else if (after == 0 && currentSolutions.count >= solutionCap) {
+            candidateSolutions.copyFrom(currentSolutions);
+            candidateFree = currentFree + 1;
+            countIncrementalRank();
+        } else {
+            fullRank(candidate);
+        }
+        if (candidateSolutions.interrupted) return Float.NaN;
+        return candidateSolutions.rank(candidateFree);
+    }
+
+    /** makes the given game, ranked last, the current game */
+    public void accept(Sudoku game) {
+        game.copyInto(current);
+        currentSolutions.copyFrom(candidateSolutions);
+        currentFree = candidateFree;
+    }
+
+    /** returns the number of ranks computed without a search */
+    public int getIncrementalRanks() {
+        return incrementalRanks;
+    }
+
+    /** returns the number of ranks computed by a full search */
+    public int getFullRanks() {
+        return fullRanks;
+    }
+
+    private void fullRank(Sudoku game) {
+        candidateSolutions.clear();
+        candidateFree = game.countFreeFields();
+
+        // cached counts are only usable if no solutions need to be known for the next step
+        RankCache cache = Ranker.getRankCache();
+        int cached = cache == null ? -1 : cache.getSolutions(game, solutionCap);
+        if (cached == 0 || cached >= solutionCap) {
+            candidateSolutions.count = cached;
+            countIncrementalRank();
+            return;
+        }
+
+        game.copyInto(scratch);
+        SolveResult result = scratch.solve(solver, solutionCap, Ranker.getSolveBudget());
+        candidateSolutions.count = result.getSolutions();
+        candidateSolutions.interrupted = !result.isComplete();
+        if (cache != null && result.isComplete())
+            cache.putSolutions(game, solutionCap, candidateSolutions.count);
+        fullRanks++;
+        Metrics metrics = Metrics.getActive();
+        if (metrics != null) metrics.recordSolve(result.getStats());
+    }
+
+    private void countIncrementalRank() {
+        incrementalRanks++;
+        Metrics metrics = Metrics.getActive();
+        if (metrics != null) metrics.recordIncrementalRank();
+    }
+
+    /** solution count of a game plus as many of its solutions as fit into the cache */
+    private class Solutions {
+
+        int count;
+        /** true if the search stopped early, count is only a lower bound then */
+        boolean interrupted;
+        /** number of solutions stored in values */
+        int stored;
+        byte[] values = new byte[16 * Sudoku.CELL_COUNT];
+
+        /** true if all solutions of the game are stored */
+        boolean isComplete() {
+            return !interrupted && count < solutionCap && stored == count;
+        }
+
+        float rank(int freeFields) {
+            return Ranker.calculateRank(count, freeFields, cells);
+        }
+
+        void clear() {
+            count = 0;
+            stored = 0;
+            interrupted = false;
+        }
+
+        void add(int[] solution) {
+            if (stored >= MAX_CACHED_SOLUTIONS) return;
+            ensureCapacity(stored + 1);
+            int off = stored * cells;
+            for (int i = 0; i < cells; i++) values[off + i] = (byte) solution[i];
+            stored++;
+        }
+
+        void copyFrom(Solutions other) {
+            ensureCapacity(other.stored);
+            System.arraycopy(other.values, 0, values, 0, other.stored * cells);
+            stored = other.stored;
+            count = other.count;
+            interrupted = other.interrupted;
+        }
+
+        /** keeps the solutions of other having the given value at the given field */
+        void copyMatching(Solutions other, int idx, int value) {
+            ensureCapacity(other.stored);
+            stored = 0;
+            for (int s = 0; s < other.stored; s++) {
+                int off = s * cells;
+                if (other.values[off + idx] == value) {
+                    System.arraycopy(other.values, off, values, stored * cells, cells);
+                    stored++;
+                }
+            }
+            count = stored;
+            interrupted = false;
+        }
+
+        private void ensureCapacity(int solutions) {
+            if (values.length < solutions * cells) {
+                byte[] grown = new byte[Math.max(values.length * 2, solutions * cells)];
+                System.arraycopy(values, 0, grown, 0, stored * cells);
+                values = grown;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package sudoku;
+
+/**
+ * Geometry of a board with boxes of boxSize x boxSize fields:
+ * the board has dim = boxSize * boxSize rows, columns and boxes of dim fields each.
+ * Field indices are y * dim + x, value v is bit v - 1 of a value mask.
+ * Layouts are immutable and shared, one per box size.
+ */
+final class Layout {
+
+    public static final int MIN_BOX_SIZE = 2;
+    /** largest box size whose value masks still fit into an int */
+    public static final int MAX_BOX_SIZE = 5;
+
+    private static final Layout[] LAYOUTS = new Layout[MAX_BOX_SIZE + 1];
+
+    static {
+        for (int b = MIN_BOX_SIZE; b <= MAX_BOX_SIZE; b++) LAYOUTS[b] = new Layout(b);
+    }
+
+    /** the standard 9x9 board */
+    public static final Layout STANDARD = of(3);
+
+    final int boxSize;
+    final int dim;
+    final int cells;
+    /** mask with all values set */
+    final int allValues;
+    /** row, column and box of every field index */
+    final int[] row;
+    final int[] col;
+    final int[] box;
+    /** field indices of all rows, then all columns, then all boxes */
+    final int[][] units;
+
+    private Layout(int boxSize) {
+        this.boxSize = boxSize;
+        this.dim = boxSize * boxSize;
+        this.cells = dim * dim;
+        this.allValues = (1 << dim) - 1;
+        row = new int[cells];
+        col = new int[cells];
+        box = new int[cells];
+        units = new int[3 * dim][dim];
+        for (int i = 0; i < cells; i++) {
+            int x = i % dim;
+            int y = i / dim;
+            int b = y / boxSize * boxSize + x / boxSize;
+            row[i] = y;
+            col[i] = x;
+            box[i] = b;
+            units[y][x] = i;
+            units[dim + x][y] = i;
+            units[2 * dim + b][y % boxSize * boxSize + x % boxSize] = i;
+        }
+    }
+
+    public static Layout of(int boxSize) {
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE)
+            throw new IllegalArgumentException("Box size must be between " + MIN_BOX_SIZE
+                    + " and " + MAX_BOX_SIZE + ": " + boxSize);
+        return LAYOUTS[boxSize];
+    }
+
+    /** returns the layout with the given number of fields or null if there is none */
+    public static Layout forCells(int cells) {
+        for (int b = MIN_BOX_SIZE; b <= MAX_BOX_SIZE; b++) {
+            if (LAYOUTS[b].cells == cells) return LAYOUTS[b];
+        }
+        return null;
+    }
+
+}
@@ -4,11 +4,24 @@ import java.nio.file.Paths;
 import java.nio.file.Path;
 import java.nio.file.Files;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 class Main {
 
     //TODO argument error checking in all methods
 
-    private enum Mode { GENERATE, RANK, GAME; }
+    /** file name suffix of binary game stores */
+    private static final String STORE_SUFFIX = ".sdb";
+
+    private enum Mode { GENERATE, RANK, GAME, BATCH, STORE, SERVE, BULK, DEDUP, SOLUTIONS; }
 
     private static void playGame(Sudoku game, Path gamePath) {
         if (gamePath == null || Files.isDirectory(gamePath)) {
@@ -21,13 +34,16 @@ class Main {
         }
     }
 
-    private static void rankGames(Sudoku game, Path gamePath) {
+    private static void rankGames(Sudoku game, Path gamePath, int threads) {
         if (gamePath == null) 
             throw new IllegalArgumentException("No game file/directory specified for ranker!");
 
         if (Files.isDirectory(gamePath)) {
             System.out.println("Ranking game files in: " + gamePath);
-            Ranker.rankGames(gamePath); 
+            Ranker.rankGames(gamePath, threads); 
+        } else if (gamePath.toString().endsWith(STORE_SUFFIX)) {
+            System.out.println("Ranking game store: " + gamePath);
+            Ranker.rankStore(gamePath);
         } else {
             System.out.println("Ranking game: " + gamePath);
             game.parseFromFile(gamePath);
@@ -35,29 +51,250 @@ class Main {
         }
     }
 
-    private static void generateGames(Sudoku game, Path gamePath, int steps) {
+    private static void generateGames(Sudoku game, Path gamePath, int steps, int chains, long seed) {
         if (gamePath == null || Files.isDirectory(gamePath))
             throw new IllegalArgumentException("Please specify a game file for the generator.");
 
         System.out.println("Generating based on: " + gamePath);        
         game.parseFromFile(gamePath);
-        Sudoku genGame = Generator.run(game, steps);
-        System.out.println("Game generation complete after " + steps + " steps:\n" + genGame);
+        System.out.println("Running " + chains + " chain(s) with seed " + seed);
+        // Ctrl-C stops the chains, the shutdown waits until the game found so far is printed
+        CancellationToken token = new CancellationToken();
+        CountDownLatch printed = new CountDownLatch(1);
+        Thread hook = addShutdownHook(() -> {
+            token.cancel();
+            try {
+                printed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            Sudoku genGame;
+            if (chains > 1) {
+                genGame = Generator.runChains(game, steps, chains, seed, token);
+            } else {
+                genGame = Generator.run(game, steps, new Random(seed), token);
+            }
+            if (token.isCancelled())
+                System.out.println("Game generation cancelled:\n" + genGame);
+            else
+                System.out.println("Game generation complete after " + steps + " steps:\n" + genGame);
+            System.out.println("Rank: " + Ranker.rankSudoku(genGame, true)); 
+        } finally {
+            printed.countDown();
+            removeShutdownHook(hook);
+        }
+
+    }
+
+    private static void digGame(Sudoku game, Path gamePath, int clues, 
+            Generator.Symmetry symmetry, long seed) {
+        if (gamePath == null || Files.isDirectory(gamePath))
+            throw new IllegalArgumentException("Please specify a game file for the generator.");
+
+        System.out.println("Digging holes based on: " + gamePath);        
+        game.parseFromFile(gamePath);
+        Sudoku genGame = Generator.digHoles(game, clues, symmetry, seed);
+        System.out.println("Game generation complete with " 
+                + (genGame.getCellCount() - genGame.countFreeFields()) + " clues:\n" + genGame);
         System.out.println("Rank: " + Ranker.rankSudoku(genGame, true)); 
+    }
+
+    private static void generateBulk(Sudoku game, Path gamePath, int count, Path outPath,
+            int threads, int clues, Generator.Symmetry symmetry, long seed) {
+        if (gamePath == null || Files.isDirectory(gamePath))
+            throw new IllegalArgumentException("Please specify a game file for the generator.");
+        if (outPath == null)
+            throw new IllegalArgumentException("Please specify an output file for the games.");
 
+        game.parseFromFile(gamePath);
+        if (game.countSolutions(Solver.Type.MASK.create(), 1) == 0)
+            throw new IllegalArgumentException("Given base game must be solvable!");
+        System.out.println("Generating " + count + " game(s) based on: " + gamePath 
+                + " with " + threads + " thread(s) and seed " + seed);
+        int games;
+        try (Writer out = Files.newBufferedWriter(outPath, StandardCharsets.US_ASCII)) {
+            games = new BulkGenerator(threads, clues, symmetry).generate(game, count, seed, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("Wrote " + games + " distinct game(s) to: " + outPath);
+    }
+
+    private static void writeStore(Path gamePath, Path storePath, boolean rank) {
+        if (gamePath == null || !Files.isDirectory(gamePath))
+            throw new IllegalArgumentException("Please specify a directory with game files for the store.");
+        if (storePath == null)
+            throw new IllegalArgumentException("Please specify a store file to write.");
+
+        System.out.println("Writing game files in: " + gamePath + " to store: " + storePath);
+        int games = PuzzleStore.writeFromDirectory(gamePath, storePath, rank);
+        System.out.println("Stored " + games + " game(s)");
+    }
+
+    private static void processBatch(Path gamePath, int threads, 
+            BatchProcessor.Operation operation, Path outPath) {
+        if (gamePath == null || Files.isDirectory(gamePath))
+            throw new IllegalArgumentException("Please specify a batch file with one game per line.");
+
+        System.err.println("Processing batch file: " + gamePath);
+        BatchProcessor processor = new BatchProcessor(operation, threads);
+        long games;
+        try (Writer out = outPath == null 
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))
+                : Files.newBufferedWriter(outPath, StandardCharsets.US_ASCII)) {
+            games = processor.process(gamePath, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.err.println("Processed " + games + " game(s)");
+    }
+
+    private static void dedup(Path gamePath, int threads, Path outPath) {
+        if (gamePath == null)
+            throw new IllegalArgumentException("Please specify a directory with game files or a batch file.");
+
+        System.err.println("Deduplicating: " + gamePath);
+        try (Writer out = outPath == null 
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII))
+                : Files.newBufferedWriter(outPath, StandardCharsets.US_ASCII)) {
+            new Deduplicator(threads).dedup(gamePath, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeSolutions(Sudoku game, Path gamePath, Path outPath, 
+            Solver.Type solverType, int limit) {
+        if (gamePath == null || Files.isDirectory(gamePath))
+            throw new IllegalArgumentException("Please specify a game file to enumerate.");
+        if (outPath == null)
+            throw new IllegalArgumentException("Please specify an output file for the solutions.");
+
+        System.out.println("Enumerating solutions of: " + gamePath);
+        game.parseFromFile(gamePath);
+        Solver solver = solverType.create();
+        solver.setBudget(Ranker.getSolveBudget());
+        long start = System.nanoTime();
+        try (SolutionWriter out = new SolutionWriter(outPath, game.getGridDim())) {
+            game.forEachSolution(solver, limit, out);
+            System.out.println("Wrote " + out.getCount() + " solution(s) to: " + outPath 
+                    + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms"
+                    + (solver.isInterrupted() ? ", stopped by the solve limit" : ""));
+        }
+    }
+
+    private static void serve(int port, int threads, int maxConnections) {
+        try (SolverServer server = new SolverServer(port, threads, maxConnections)) {
+            System.err.println("Serving on localhost:" + server.getPort() + " with " 
+                    + threads + " worker(s)");
+            // Ctrl-C closes the server, which cancels the running solves
+            Thread hook = addShutdownHook(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    // shutting down anyway
+                }
+            });
+            try {
+                server.serve();
+            } finally {
+                removeShutdownHook(hook);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Thread addShutdownHook(Runnable action) {
+        Thread hook = new Thread(action);
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
+    }
+
+    private static void removeShutdownHook(Thread hook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // the hook is already running
+        }
+    }
+
+    private static void writeMetrics(String metricsFile) {
+        Metrics metrics = Metrics.getActive();
+        if (metricsFile != null && metrics != null)
+            metrics.write(Paths.get(metricsFile));
     }
 
     /**
      * args:
-     *   0. GENERATE, RANK or GAME
-     *   1. optional path to sudoku file or directory with sudoku files
-     *   2. optional number of steps for generator
+     *   0. GENERATE, RANK, GAME, BATCH, STORE, SERVE, BULK, DEDUP or SOLUTIONS
+     *   1. optional path to sudoku file or directory with sudoku files, port for serve
+     *   2. optional number of steps for generator or DIG to generate by digging holes,
+     *      number of threads for ranker, batch, serve and dedup, output file for store
+     *   3. optional number of parallel generator chains or target clues for DIG,
+     *      SOLVE (default) or RANK for batch, RANK to store ranks, 
+     *      number of connections for serve, output file for dedup
+     *   4. optional random seed for generator chains, symmetry for DIG (NONE, ROTATIONAL,
+     *      MIRROR or DIAGONAL) or output file for batch
+     *   5. optional random seed for DIG
+     *
+     * BULK args: base game file, number of games, output file, optional number of threads,
+     *            target clues, symmetry and random seed
+     * SOLUTIONS args: game file, output file for the packed solutions, 
+     *                 optional maximum number of solutions
+     *
+     * system properties:
+     *   sudoku.solver  solver engine used for ranking, playing and enumerating solutions,
+     *                  MASK, DLX or PARALLEL; by default DLX for ranking and MASK otherwise
+     *   sudoku.rank    rank function of ranker and generator, SOLUTIONS (default) or TECHNIQUES
+     *   sudoku.cap     number of solutions after which the ranker stops counting
+     *   sudoku.cache   number of games kept in the rank cache, 0 disables it
+     *   sudoku.timeout time in milliseconds a single ranking or enumerating solve may take
+     *   sudoku.maxsteps search steps a single ranking or enumerating solve may take
+     *   sudoku.metrics file the solver and generator metrics are written to, 
+     *                  as JSON if it ends with .json and as CSV otherwise
      */
     public static void main(String[] args) {
         Sudoku game = new Sudoku();
 
+        Solver.Type solverType = Solver.Type.MASK;
+        String solver = System.getProperty("sudoku.solver");
+        if (solver != null) {
+            try {
+                solverType = Solver.Type.valueOf(solver.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown solver engine: " + solver + ", use MASK, DLX or PARALLEL.");
+                System.exit(1);
+            }
+            Ranker.setSolverType(solverType);
+            Game.setSolverType(solverType);
+        }
+        String rankFunction = System.getProperty("sudoku.rank");
+        if (rankFunction != null)
+            Ranker.setRankFunction(Ranker.RankFunction.valueOf(rankFunction));
+        String cap = System.getProperty("sudoku.cap");
+        if (cap != null)
+            Ranker.setSolutionCap(Integer.parseInt(cap));
+        String cacheSize = System.getProperty("sudoku.cache");
+        if (cacheSize != null) {
+            int entries = Integer.parseInt(cacheSize);
+            Ranker.setRankCache(entries > 0 ? new RankCache(entries, true) : null);
+        }
+        String timeout = System.getProperty("sudoku.timeout");
+        String maxSteps = System.getProperty("sudoku.maxsteps");
+        if (timeout != null || maxSteps != null) {
+            Ranker.setSolveBudget(new SolveBudget(
+                    timeout == null ? 0 : TimeUnit.MILLISECONDS.toNanos(Long.parseLong(timeout)),
+                    maxSteps == null ? 0 : Long.parseLong(maxSteps), null));
+        }
+        String metricsFile = System.getProperty("sudoku.metrics");
+        if (metricsFile != null)
+            Metrics.setActive(new Metrics());
+
         if (args.length < 1) {
-            System.err.println("Please provide GENERATE, RANK or GAME as first argument.");
+            System.err.println("Please provide GENERATE, RANK, GAME, BATCH, STORE, SERVE, BULK, DEDUP or SOLUTIONS as first argument.");
             System.exit(1);
         }
 
@@ -71,18 +308,85 @@ class Main {
                 playGame(game, gamePath);
                 break;
             case GENERATE:
+                if (args.length >= 3 && args[2].equals("DIG")) {
+                    int clues = args.length >= 4 ? Integer.parseInt(args[3]) : Generator.MIN_CLUES;
+                    Generator.Symmetry symmetry = args.length >= 5 
+                        ? Generator.Symmetry.valueOf(args[4]) : Generator.Symmetry.NONE;
+                    long digSeed = args.length >= 6 ? Long.parseLong(args[5]) : System.nanoTime();
+                    digGame(game, gamePath, clues, symmetry, digSeed);
+                    break;
+                }
                 int steps = Generator.DEFAULT_STEPS;
                 if (args.length >= 3) steps = Integer.parseInt(args[2]);
-                generateGames(game, gamePath, steps);
+                int chains = 1;
+                if (args.length >= 4) chains = Integer.parseInt(args[3]);
+                long seed = System.nanoTime();
+                if (args.length >= 5) seed = Long.parseLong(args[4]);
+                generateGames(game, gamePath, steps, chains, seed);
                 break;
             case RANK:
-                rankGames(game, gamePath);
+                int threads = 1;
+                if (args.length >= 3) threads = Integer.parseInt(args[2]);
+                rankGames(game, gamePath, threads);
+                break;
+            case BATCH:
+                int workers = Runtime.getRuntime().availableProcessors();
+                if (args.length >= 3) workers = Integer.parseInt(args[2]);
+                BatchProcessor.Operation operation = BatchProcessor.Operation.SOLVE;
+                if (args.length >= 4) operation = BatchProcessor.Operation.valueOf(args[3]);
+                Path outPath = null;
+                if (args.length >= 5) outPath = Paths.get(args[4]);
+                processBatch(gamePath, workers, operation, outPath);
+                writeMetrics(metricsFile);
+                // keep the output stream free of anything but results
+                return;
+            case SOLUTIONS:
+                Path solutionsPath = args.length >= 3 ? Paths.get(args[2]) : null;
+                int limit = Solver.UNLIMITED;
+                if (args.length >= 4) limit = Integer.parseInt(args[3]);
+                writeSolutions(game, gamePath, solutionsPath, solverType, limit);
+                break;
+            case DEDUP:
+                int dedupThreads = Runtime.getRuntime().availableProcessors();
+                if (args.length >= 3) dedupThreads = Integer.parseInt(args[2]);
+                Path dedupPath = args.length >= 4 ? Paths.get(args[3]) : null;
+                dedup(gamePath, dedupThreads, dedupPath);
+                writeMetrics(metricsFile);
+                // keep the output stream free of anything but results
+                return;
+            case STORE:
+                Path storePath = null;
+                if (args.length >= 3) storePath = Paths.get(args[2]);
+                boolean rank = args.length >= 4 && args[3].equals("RANK");
+                writeStore(gamePath, storePath, rank);
+                break;
+            case BULK:
+                int count = args.length >= 3 ? Integer.parseInt(args[2]) : 0;
+                Path bulkPath = args.length >= 4 ? Paths.get(args[3]) : null;
+                int bulkThreads = Runtime.getRuntime().availableProcessors();
+                if (args.length >= 5) bulkThreads = Integer.parseInt(args[4]);
+                int bulkClues = args.length >= 6 ? Integer.parseInt(args[5]) : Generator.MIN_CLUES;
+                Generator.Symmetry bulkSymmetry = args.length >= 7 
+                    ? Generator.Symmetry.valueOf(args[6]) : Generator.Symmetry.NONE;
+                long bulkSeed = args.length >= 8 ? Long.parseLong(args[7]) : System.nanoTime();
+                generateBulk(game, gamePath, count, bulkPath, bulkThreads, bulkClues, 
+                        bulkSymmetry, bulkSeed);
+                break;
+            case SERVE:
+                int port = SolverServer.DEFAULT_PORT;
+                if (args.length >= 2) port = Integer.parseInt(args[1]);
+                int serveThreads = Runtime.getRuntime().availableProcessors();
+                if (args.length >= 3) serveThreads = Integer.parseInt(args[2]);
+                int maxConnections = SolverServer.DEFAULT_CONNECTIONS;
+                if (args.length >= 4) maxConnections = Integer.parseInt(args[3]);
+                serve(port, serveThreads, maxConnections);
                 break;
             default:
                 System.err.println("Unknown game mode: " + mode);
                 System.exit(1);
 
         }
+        writeMetrics(metricsFile);
         System.out.println("Bye Bye");
    }
 
@@ -0,0 +1,274 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Constraint propagation solver working on digit masks
+ * per row, column and box, for boards of all sizes.
+ * Every placement is propagated using naked and hidden singles,
+ * branching is done on the free field with the fewest candidates left.
+ */
+class MaskSolver implements Solver {
+
+    /** board the tables below are set up for, they are replaced when the size changes */
+    private Layout layout;
+    private int n;
+    private int cells;
+    private int allDigits;
+    /** row, column and box of every cell index (y * n + x) */
+    private int[] row;
+    private int[] col;
+    private int[] box;
+    /** cell indices of all rows, columns and boxes */
+    private int[][] units;
+
+    /** layout of the search state: cell digit bits followed by the
+     * used digit masks of all rows, columns and boxes */
+    private int rowOff;
+    private int colOff;
+    private int boxOff;
+    private int stateSize;
+
+    private int[] state;
+    /** saved states, one per search depth */
+    private int[][] saved;
+    private int[] solution;
+
+    private Sudoku game;
+    private int maxSolutions;
+    private boolean verbose;
+    private final SolveStats stats = new SolveStats();
+    private SolveBudget budget = SolveBudget.UNLIMITED;
+    private long deadline;
+    private boolean interrupted;
+    private int solutions;
+    /** solution count shared with solvers working on other parts of the same game, may be null */
+    private AtomicInteger sharedSolutions;
+
+    /** receives every solution found, may be null */
+    private Consumer<int[]> solutionConsumer;
+
+    @Override
+    public void setSolutionConsumer(Consumer<int[]> solutionConsumer) {
+        this.solutionConsumer = solutionConsumer;
+    }
+
+    /**
+     * Makes this solver count its solutions in the given shared counter
+     * and stop as soon as the counter reaches the solution limit.
+     */
+    void shareSolutionCount(AtomicInteger sharedSolutions) {
+        this.sharedSolutions = sharedSolutions;
+    }
+
+    @Override
+    public int solve(Sudoku game, int maxSolutions, boolean verbose) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (maxSolutions < 1) throw new IllegalArgumentException("Solution limit must be >= 1");
+        setLayout(game.getLayout());
+        this.game = game;
+        this.maxSolutions = maxSolutions;
+        this.verbose = verbose;
+        stats.reset();
+        solutions = 0;
+        interrupted = false;
+        long start = System.nanoTime();
+        deadline = budget.deadline();
+
+        if (load()) search(0);
+        stats.elapsedNanos = System.nanoTime() - start;
+
+        if (maxSolutions == 1 && solutions > 0) game.fillNonInitial(solution);
+        else game.clearNonInitial();
+
+        this.game = null;
+        return solutions;
+    }
+
+    private void setLayout(Layout layout) {
+        if (this.layout == layout) return;
+        this.layout = layout;
+        n = layout.dim;
+        cells = layout.cells;
+        allDigits = layout.allValues;
+        row = layout.row;
+        col = layout.col;
+        box = layout.box;
+        units = layout.units;
+        rowOff = cells;
+        colOff = rowOff + n;
+        boxOff = colOff + n;
+        stateSize = boxOff + n;
+        state = new int[stateSize];
+        saved = new int[cells + 1][stateSize];
+        solution = new int[cells];
+    }
+
+    /** loads the initial fields of the game, returns false if they contradict each other */
+    private boolean load() {
+        Arrays.fill(state, 0);
+        for (int i = 0; i < cells; i++) {
+            int x = col[i];
+            int y = row[i];
+            if (game.isInitial(x, y) && !place(i, 1 << (game.getField(x, y) - 1)))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void setBudget(SolveBudget budget) {
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    @Override
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    /** returns true and marks the solve as interrupted if the budget is used up */
+    private boolean outOfBudget() {
+        if (budget.isExceeded(stats.steps, deadline)) interrupted = true;
+        return interrupted;
+    }
+
+    /** returns true if the search should stop */
+    private boolean search(int depth) {
+        if (!propagate()) return false;
+
+        int best = -1;
+        int bestCands = 0;
+        int bestCount = n + 1;
+        for (int i = 0; i < cells; i++) {
+            if (state[i] != 0) continue;
+            int cands = candidates(i);
+            int count = Integer.bitCount(cands);
+            if (count < bestCount) {
+                best = i;
+                bestCands = cands;
+                bestCount = count;
+                if (count <= 2) break;
+            }
+        }
+
+        if (best < 0) return foundSolution();
+        if (depth + 1 > stats.maxDepth) stats.maxDepth = depth + 1;
+
+        System.arraycopy(state, 0, saved[depth], 0, stateSize);
+        while (bestCands != 0) {
+            int bit = bestCands & -bestCands;
+            bestCands ^= bit;
+            if (sharedSolutions != null && sharedSolutions.get() >= maxSolutions) return true;
+            if (outOfBudget()) return true;
+            stats.steps++;
+            place(best, bit);
+            if (search(depth + 1)) return true;
+            stats.backtracks++;
+            System.arraycopy(saved[depth], 0, state, 0, stateSize);
+        }
+        return false;
+    }
+
+    private boolean foundSolution() {
+        solutions++;
+        if (solutions == 1 || verbose || solutionConsumer != null) {
+            for (int i = 0; i < cells; i++) solution[i] = digit(state[i]);
+        }
+        int found = sharedSolutions == null ? solutions : sharedSolutions.incrementAndGet();
+        // another part of the game may have reached the limit first
+        if (found > maxSolutions) return true;
+        if (solutionConsumer != null) solutionConsumer.accept(solution);
+        if (verbose) {
+            game.fillNonInitial(solution);
+            System.out.println("Solution found:\n" + game);
+        }
+        return found >= maxSolutions;
+    }
+
+    /**
+     * Places naked and hidden singles until nothing changes anymore.
+     * Returns false if a contradiction was found.
+     */
+    private boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // naked singles
+            for (int i = 0; i < cells; i++) {
+                if (state[i] != 0) continue;
+                int cands = candidates(i);
+                if (cands == 0) return false;
+                if ((cands & (cands - 1)) == 0) {
+                    place(i, cands);
+                    stats.propagations++;
+                    changed = true;
+                }
+            }
+
+            // hidden singles
+            for (int[] unit : units) {
+                int once = 0;
+                int twice = 0;
+                int placed = 0;
+                for (int i : unit) {
+                    if (state[i] != 0) {
+                        placed |= state[i];
+                    } else {
+                        int cands = candidates(i);
+                        twice |= once & cands;
+                        once |= cands;
+                    }
+                }
+                if ((once | placed) != allDigits) return false;
+
+                int hidden = once & ~twice;
+                while (hidden != 0) {
+                    int bit = hidden & -hidden;
+                    hidden ^= bit;
+                    for (int i : unit) {
+                        // a field needing two digits is caught in the next pass
+                        if (state[i] == 0 && (candidates(i) & bit) != 0) {
+                            place(i, bit);
+                            stats.propagations++;
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private int candidates(int i) {
+        return ~(state[rowOff + row[i]] | state[colOff + col[i]] | state[boxOff + box[i]])
+                & allDigits;
+    }
+
+    /** places the digit bit at the given cell, returns false if the digit is already used */
+    private boolean place(int i, int bit) {
+        int r = rowOff + row[i];
+        int c = colOff + col[i];
+        int b = boxOff + box[i];
+        if (((state[r] | state[c] | state[b]) & bit) != 0) return false;
+        state[i] = bit;
+        state[r] |= bit;
+        state[c] |= bit;
+        state[b] |= bit;
+        return true;
+    }
+
+    private static int digit(int bit) {
+        return Integer.numberOfTrailingZeros(bit) + 1;
+    }
+
+}
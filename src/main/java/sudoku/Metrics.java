@@ -0,0 +1,251 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects solver and generator counters across many solves,
+ * including log2 histograms of solve times and steps.
+ * Ranker, Generator and the batch processor record into the active instance if one is set.
+ * All methods are safe to use from several threads.
+ */
+class Metrics {
+
+    /** histogram bucket i counts values v with 2^(i-1) <= v < 2^i, bucket 0 counts v = 0 */
+    private static final int BUCKETS = 40;
+
+    /** most generator steps kept for the trend */
+    static final int MAX_TREND = 4096;
+
+    private static volatile Metrics active;
+
+    /** sets the instance all components record into, null disables recording */
+    public static void setActive(Metrics metrics) {
+        active = metrics;
+    }
+
+    /** returns the instance to record into or null if recording is disabled */
+    public static Metrics getActive() {
+        return active;
+    }
+
+    private long solves;
+    private long steps;
+    private long backtracks;
+    private long propagations;
+    private long elapsedNanos;
+    private long maxSteps;
+    private long maxElapsedNanos;
+    private int maxDepth;
+    private final long[] elapsedMicrosHistogram = new long[BUCKETS];
+    private final long[] stepsHistogram = new long[BUCKETS];
+
+    private long cacheHits;
+    private long incrementalRanks;
+
+    private long acceptedSteps;
+    private long rejectedSteps;
+    /**
+     * score of every trendInterval-th generator step, the interval doubles whenever
+     * the trend is full so it covers the whole run with at most MAX_TREND steps
+     */
+    private final List<GeneratorStep> trend = new ArrayList<>();
+    private int trendInterval = 1;
+
+    private static class GeneratorStep {
+        final int chain;
+        final int step;
+        final boolean accepted;
+        final float score;
+
+        GeneratorStep(int chain, int step, boolean accepted, float score) {
+            this.chain = chain;
+            this.step = step;
+            this.accepted = accepted;
+            this.score = score;
+        }
+    }
+
+    public synchronized void recordSolve(SolveStats stats) {
+        if (stats == null) throw new IllegalArgumentException("Given stats must not be null");
+        solves++;
+        steps += stats.getSteps();
+        backtracks += stats.getBacktracks();
+        propagations += stats.getPropagations();
+        elapsedNanos += stats.getElapsedNanos();
+        maxSteps = Math.max(maxSteps, stats.getSteps());
+        maxElapsedNanos = Math.max(maxElapsedNanos, stats.getElapsedNanos());
+        maxDepth = Math.max(maxDepth, stats.getMaxDepth());
+        elapsedMicrosHistogram[bucket(stats.getElapsedNanos() / 1000)]++;
+        stepsHistogram[bucket(stats.getSteps())]++;
+    }
+
+    /** records a rank answered by the rank cache */
+    public synchronized void recordCacheHit() {
+        cacheHits++;
+    }
+
+    /** records a rank derived from the previous generator step without a search */
+    public synchronized void recordIncrementalRank() {
+        incrementalRanks++;
+    }
+
+    /** records a generator step with the score of the chain's game after the step */
+    public synchronized void recordGeneratorStep(int chain, int step, boolean accepted, float score) {
+        if (accepted) acceptedSteps++;
+        else rejectedSteps++;
+        if (step % trendInterval != 0) return;
+        while (trend.size() >= MAX_TREND && trendInterval <= Integer.MAX_VALUE / 2) {
+            trendInterval *= 2;
+            int interval = trendInterval;
+            trend.removeIf(s -> s.step % interval != 0);
+        }
+        // more chains than MAX_TREND only keep the first step of each
+        if (step % trendInterval == 0 && trend.size() < MAX_TREND)
+            trend.add(new GeneratorStep(chain, step, accepted, score));
+    }
+
+    public synchronized long getSolves() {
+        return solves;
+    }
+
+    public synchronized long getSteps() {
+        return steps;
+    }
+
+    public synchronized long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getAcceptedSteps() {
+        return acceptedSteps;
+    }
+
+    public synchronized long getRejectedSteps() {
+        return rejectedSteps;
+    }
+
+    public synchronized long[] getElapsedMicrosHistogram() {
+        return elapsedMicrosHistogram.clone();
+    }
+
+    public synchronized long[] getStepsHistogram() {
+        return stepsHistogram.clone();
+    }
+
+    public synchronized String toJson() {
+        StringBuilder bld = new StringBuilder();
+        bld.append("{\n  \"solves\": {");
+        appendJsonCounters(bld);
+        bld.append("},\n  \"elapsedMicrosHistogram\": ").append(jsonHistogram(elapsedMicrosHistogram));
+        bld.append(",\n  \"stepsHistogram\": ").append(jsonHistogram(stepsHistogram));
+        bld.append(",\n  \"generator\": {\"accepted\": ").append(acceptedSteps)
+            .append(", \"rejected\": ").append(rejectedSteps).append(", \"trend\": [");
+        for (int i = 0; i < trend.size(); i++) {
+            GeneratorStep s = trend.get(i);
+            if (i > 0) bld.append(", ");
+            bld.append("{\"chain\": ").append(s.chain).append(", \"step\": ").append(s.step)
+                .append(", \"accepted\": ").append(s.accepted)
+                .append(", \"score\": ").append(jsonNumber(s.score)).append("}");
+        }
+        bld.append("]}\n}\n");
+        return bld.toString();
+    }
+
+    /**
+     * returns all metrics as CSV with the columns section, name, chain, step and value,
+     * chain and step are only set for the generator trend
+     */
+    public synchronized String toCsv() {
+        StringBuilder bld = new StringBuilder("section,name,chain,step,value\n");
+        String[] names = counterNames();
+        long[] values = counterValues();
+        for (int i = 0; i < names.length; i++) {
+            bld.append("solves,").append(names[i]).append(",,,").append(values[i]).append('\n');
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            bld.append("elapsedMicrosHistogram,").append(bucketLimit(i)).append(",,,")
+                .append(elapsedMicrosHistogram[i]).append('\n');
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            bld.append("stepsHistogram,").append(bucketLimit(i)).append(",,,")
+                .append(stepsHistogram[i]).append('\n');
+        }
+        bld.append("generator,accepted,,,").append(acceptedSteps).append('\n');
+        bld.append("generator,rejected,,,").append(rejectedSteps).append('\n');
+        for (GeneratorStep s : trend) {
+            bld.append("trend,").append(s.accepted ? "accepted" : "rejected").append(',')
+                .append(s.chain).append(',').append(s.step).append(',').append(s.score).append('\n');
+        }
+        return bld.toString();
+    }
+
+    /** writes the metrics to the given file, as JSON if its name ends with .json and as CSV otherwise */
+    public void write(Path file) {
+        if (file == null) throw new IllegalArgumentException("Given file must not be null");
+        String content = file.toString().endsWith(".json") ? toJson() : toCsv();
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String[] counterNames() {
+        return new String[] { "count", "steps", "backtracks", "propagations", "elapsedNanos",
+            "maxSteps", "maxElapsedNanos", "maxDepth", "cacheHits", "incrementalRanks" };
+    }
+
+    private long[] counterValues() {
+        return new long[] { solves, steps, backtracks, propagations, elapsedNanos,
+            maxSteps, maxElapsedNanos, maxDepth, cacheHits, incrementalRanks };
+    }
+
+    private void appendJsonCounters(StringBuilder bld) {
+        String[] names = counterNames();
+        long[] values = counterValues();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) bld.append(", ");
+            bld.append('"').append(names[i]).append("\": ").append(values[i]);
+        }
+    }
+
+    /** histogram as object of upper bucket limit to count, empty buckets are left out */
+    private static String jsonHistogram(long[] histogram) {
+        StringBuilder bld = new StringBuilder("{");
+        boolean first = true;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) continue;
+            if (!first) bld.append(", ");
+            bld.append("\"<").append(bucketLimit(i)).append("\": ").append(histogram[i]);
+            first = false;
+        }
+        return bld.append("}").toString();
+    }
+
+    private static String jsonNumber(float value) {
+        // JSON has no representation for the rank of unsolvable games
+        return Float.isInfinite(value) || Float.isNaN(value) || value == Float.MAX_VALUE
+            ? "null" : Float.toString(value);
+    }
+
+    private static int bucket(long value) {
+        if (value <= 0) return 0;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /** exclusive upper limit of the values counted in the given bucket */
+    private static long bucketLimit(int bucket) {
+        return 1L << bucket;
+    }
+
+}
@@ -0,0 +1,187 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Splits the search tree of a single game at its first branching fields
+ * into independent subtasks, each solved by a MaskSolver on its own board copy.
+ * All subtasks share one solution counter, so the search stops everywhere
+ * as soon as the solution limit is reached.
+ * Solutions are passed to the solution consumer by one subtask at a time.
+ */
+class ParallelSolver implements Solver {
+
+    public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final SolveStats stats = new SolveStats();
+    private SolveBudget budget = SolveBudget.UNLIMITED;
+    private Consumer<int[]> solutionConsumer;
+    private boolean interrupted;
+
+    public ParallelSolver(ForkJoinPool pool, int splitDepth) {
+        if (pool == null) throw new IllegalArgumentException("Given pool must not be null");
+        if (splitDepth < 0) throw new IllegalArgumentException("Split depth must be >= 0");
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    @Override
+    public int solve(Sudoku game, int maxSolutions, boolean verbose) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (maxSolutions < 1) throw new IllegalArgumentException("Solution limit must be >= 1");
+
+        stats.reset();
+        long start = System.nanoTime();
+        Search search = new Search(maxSolutions, verbose, budget.deadline(), solutionConsumer);
+        Sudoku root = new Sudoku(game);
+        root.clearNonInitial();
+        int solutions = Math.min(pool.invoke(search.new SplitTask(root, 0)), maxSolutions);
+        stats.elapsedNanos = System.nanoTime() - start;
+        interrupted = search.interrupted;
+
+        if (maxSolutions == 1 && search.solution.get() != null) 
+            game.fillNonInitial(search.solution.get());
+        else 
+            game.clearNonInitial();
+        return solutions;
+    }
+
+    /** 
+     * The time limit and token apply to the whole solve,
+     * the step limit to each subtask on its own.
+     */
+    @Override
+    public void setBudget(SolveBudget budget) {
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
+        this.budget = budget;
+    }
+
+    @Override
+    public void setSolutionConsumer(Consumer<int[]> solutionConsumer) {
+        this.solutionConsumer = solutionConsumer;
+    }
+
+    @Override
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    @Override
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    /** state shared by all subtasks of one solve */
+    private class Search {
+
+        final int maxSolutions;
+        final boolean verbose;
+        final long deadline;
+        /** consumer of all subtasks, calls are synchronized on it, may be null */
+        final Consumer<int[]> consumer;
+        volatile boolean interrupted;
+        final AtomicInteger solutions = new AtomicInteger();
+        /** first solution found, indexed by y * n + x */
+        final AtomicReference<int[]> solution = new AtomicReference<>();
+
+        Search(int maxSolutions, boolean verbose, long deadline, Consumer<int[]> consumer) {
+            this.maxSolutions = maxSolutions;
+            this.verbose = verbose;
+            this.deadline = deadline;
+            this.consumer = consumer;
+        }
+
+        /** solves the given board whose set fields are all initial */
+        class SplitTask extends RecursiveTask<Integer> {
+
+            private static final long serialVersionUID = 1L;
+
+            private final Sudoku board;
+            private final int depth;
+
+            SplitTask(Sudoku board, int depth) {
+                this.board = board;
+                this.depth = depth;
+            }
+
+            @Override
+            protected Integer compute() {
+                if (solutions.get() >= maxSolutions || interrupted) return 0;
+                if (depth >= splitDepth) return solveLeaf();
+
+                // branch on the free field with the fewest valid values
+                int n = board.getGridDim();
+                int[] candidates = new int[board.getCellCount()];
+                if (board.getAllCandidates(candidates) == 0) return solveLeaf();
+                int best = -1;
+                int bestCount = n + 1;
+                for (int i = 0; i < candidates.length; i++) {
+                    if (board.isSet(i % n, i / n)) continue;
+                    int count = Integer.bitCount(candidates[i]);
+                    if (count < bestCount) {
+                        best = i;
+                        bestCount = count;
+                    }
+                }
+                if (bestCount == 0) return 0;
+
+                List<SplitTask> tasks = new ArrayList<>();
+                for (int cands = candidates[best]; cands != 0; cands &= cands - 1) {
+                    Sudoku child = new Sudoku(board);
+                    child.setField(best % n, best / n,
+                            Integer.numberOfTrailingZeros(cands) + 1);
+                    child.makeAllInitial();
+                    tasks.add(new SplitTask(child, depth + 1));
+                }
+                SolveStats split = new SolveStats();
+                split.steps = tasks.size();
+                split.maxDepth = depth + 1;
+                stats.add(split);
+
+                int sum = 0;
+                for (SplitTask task : invokeAll(tasks)) sum += task.join();
+                return sum;
+            }
+
+            private int solveLeaf() {
+                MaskSolver solver = new MaskSolver();
+                solver.shareSolutionCount(solutions);
+                solver.setBudget(budget.remaining(deadline));
+                if (consumer != null) {
+                    solver.setSolutionConsumer(values -> {
+                        synchronized (consumer) {
+                            consumer.accept(values);
+                        }
+                    });
+                }
+                int found = solver.solve(board, maxSolutions, verbose);
+                if (solver.isInterrupted()) interrupted = true;
+                SolveStats leaf = new SolveStats();
+                leaf.add(solver.getStats());
+                leaf.maxDepth += depth;
+                stats.add(leaf);
+
+                if (maxSolutions == 1 && found > 0) {
+                    int n = board.getGridDim();
+                    int[] values = new int[board.getCellCount()];
+                    for (int y = 0; y < n; y++) {
+                        for (int x = 0; x < n; x++) {
+                            values[y * n + x] = board.getField(x, y);
+                        }
+                    }
+                    solution.compareAndSet(null, values);
+                }
+                return found;
+            }
+        }
+    }
+
+}
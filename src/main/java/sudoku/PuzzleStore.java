@@ -0,0 +1,201 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary corpus of games with fixed size records, read through a memory mapped file.
+ *
+ * The file starts with a 16 byte header (magic, version, record size, record count)
+ * followed by 64 byte records:
+ *   bytes  0 - 40  field values, 4 bits per field, the even field in the low bits
+ *   bytes 41 - 51  initial flags, 1 bit per field
+ *   bytes 52 - 55  cached solution count, -1 if unknown
+ *   bytes 56 - 59  cached rank, NaN if unknown
+ *   bytes 60 - 63  solution cap the count and rank were computed with, 0 if unknown
+ * Field indices are y * GRID_DIM + x, all numbers are big endian.
+ * Only standard 9x9 games can be stored.
+ * Records can be loaded by index, so several processes can work on disjoint index ranges.
+ */
+class PuzzleStore implements Closeable {
+
+    public static final int MAGIC = 0x53444B42; // "SDKB"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 64;
+
+    private static final int CELLS = Sudoku.CELL_COUNT;
+    private static final int INITIAL_OFF = (CELLS + 1) / 2;
+    private static final int SOLUTIONS_OFF = 52;
+    private static final int RANK_OFF = 56;
+    private static final int SOLUTION_CAP_OFF = 60;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private PuzzleStore(FileChannel channel, MappedByteBuffer buffer, int size) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /** maps the given store file read only */
+    public static PuzzleStore open(Path file) {
+        if (file == null || !Files.exists(file))
+            throw new IllegalArgumentException("Given file does not exist: " + file);
+
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                channel.close();
+                throw new RuntimeException("Given store file has invalid size: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            int size = buffer.getInt(12);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != RECORD_SIZE
+                    || size < 0 || HEADER_SIZE + (long) size * RECORD_SIZE > length) {
+                channel.close();
+                throw new RuntimeException("Given store file has invalid format: " + file);
+            }
+            return new PuzzleStore(channel, buffer, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** returns the number of games in the store */
+    public int size() {
+        return size;
+    }
+
+    /** loads the game with the given index into the given board */
+    public void load(int index, Sudoku target) {
+        if (target == null) throw new IllegalArgumentException("Given sudoku must not be null.");
+        int off = offset(index);
+        target.setLayout(Layout.STANDARD);
+        target.clearAll();
+        for (int i = 0; i < CELLS; i++) {
+            int packed = buffer.get(off + i / 2);
+            int value = (i & 1) == 0 ? packed & 0xF : (packed >>> 4) & 0xF;
+            boolean initial = (buffer.get(off + INITIAL_OFF + i / 8) & (1 << (i % 8))) != 0;
+            target.setFieldUnchecked(i, value, initial);
+        }
+    }
+
+    /** returns the cached solution count of the given game or -1 if unknown */
+    public int getSolutions(int index) {
+        return buffer.getInt(offset(index) + SOLUTIONS_OFF);
+    }
+
+    /** returns the cached rank of the given game or NaN if unknown */
+    public float getRank(int index) {
+        return buffer.getFloat(offset(index) + RANK_OFF);
+    }
+
+    /** returns the solution cap the cached count and rank of the given game were computed with, 0 if unknown */
+    public int getSolutionCap(int index) {
+        return buffer.getInt(offset(index) + SOLUTION_CAP_OFF);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size)
+            throw new IllegalArgumentException("Invalid store index: " + index);
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    /**
+     * Writes all *.sd files of the given directory, in path order, into a new store file.
+     * If rank is set, solution count and rank of every game are computed and stored as well.
+     * @return the number of games written
+     */
+    public static int writeFromDirectory(Path gameDir, Path file, boolean rank) {
+        if (gameDir == null || !Files.isDirectory(gameDir))
+            throw new IllegalArgumentException("Given directory does not exist: " + gameDir);
+
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(gameDir, "*.sd")) {
+            for (Path entry : stream) {
+                if (Files.isRegularFile(entry)) entries.add(entry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Collections.sort(entries);
+
+        Sudoku game = new Sudoku();
+        int solutionCap = Ranker.getSolutionCap();
+        try (SolveWorkspace workspace = SolveWorkspace.acquire();
+                FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(entries.size());
+            header.flip();
+            out.write(header);
+
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            for (Path entry : entries) {
+                game.parseFromFile(entry);
+                if (game.getLayout() != Layout.STANDARD)
+                    throw new IllegalArgumentException("Only 9x9 games can be stored: " + entry);
+                int solutions = -1;
+                float rankValue = Float.NaN;
+                if (rank) {
+                    int freeFields = game.countFreeFields();
+                    solutions = workspace.solve(game, Solver.Type.MASK, solutionCap, SolveBudget.UNLIMITED);
+                    rankValue = Ranker.calculateRank(solutions, freeFields);
+                }
+
+                record.clear();
+                encode(game, solutions, rankValue, rank ? solutionCap : 0, record);
+                record.flip();
+                while (record.hasRemaining()) out.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries.size();
+    }
+
+    private static void encode(Sudoku game, int solutions, float rank, int solutionCap, ByteBuffer record) {
+        byte[] bytes = new byte[RECORD_SIZE];
+        for (int y = 0; y < Sudoku.GRID_DIM; y++) {
+            for (int x = 0; x < Sudoku.GRID_DIM; x++) {
+                int i = y * Sudoku.GRID_DIM + x;
+                int value = game.getField(x, y);
+                bytes[i / 2] |= (i & 1) == 0 ? value : value << 4;
+                if (game.isInitial(x, y)) bytes[INITIAL_OFF + i / 8] |= 1 << (i % 8);
+            }
+        }
+        record.put(bytes, 0, SOLUTIONS_OFF);
+        record.putInt(solutions);
+        record.putFloat(rank);
+        record.putInt(solutionCap);
+    }
+
+}
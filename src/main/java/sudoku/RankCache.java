@@ -0,0 +1,176 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded LRU cache of solution counts keyed by the initial fields of a game.
+ * Optionally the key is normalized under transposition and digit relabeling first,
+ * so games that only differ by these symmetries share one entry.
+ * The cache is safe to use from several threads. Keys are built in buffers kept per thread,
+ * so a lookup allocates nothing and only a stored entry gets a key of its own.
+ */
+class RankCache {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final ThreadLocal<KeyBuilder> builders = ThreadLocal.withInitial(KeyBuilder::new);
+
+    private final Map<Key, Integer> solutions;
+    private final boolean canonical;
+    private long hits;
+    private long misses;
+
+    public RankCache(int capacity, boolean canonical) {
+        if (capacity < 1) throw new IllegalArgumentException("Cache capacity must be >= 1");
+        this.canonical = canonical;
+        this.solutions = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** returns the cached number of solutions found with the given cap or -1 if unknown */
+    public int getSolutions(Sudoku game, int solutionCap) {
+        Key key = key(game, solutionCap);
+        synchronized (solutions) {
+            Integer sol = solutions.get(key);
+            if (sol == null) {
+                misses++;
+                return -1;
+            }
+            hits++;
+            return sol;
+        }
+    }
+
+    public void putSolutions(Sudoku game, int solutionCap, int sol) {
+        Key key = key(game, solutionCap).copy();
+        synchronized (solutions) {
+            solutions.put(key, sol);
+        }
+    }
+
+    public long getHits() {
+        synchronized (solutions) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (solutions) {
+            return misses;
+        }
+    }
+
+    private Key key(Sudoku game, int solutionCap) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        return builders.get().build(game, solutionCap, canonical);
+    }
+
+    /** reused buffers of the keys of one thread */
+    private static final class KeyBuilder {
+
+        private final Key key = new Key(new long[0], 0);
+        private long[] packed = new long[0];
+        private long[] transposed = new long[0];
+        private int[] labels = new int[0];
+
+        /** returns the key of the given game in the buffers, only valid until the next build */
+        Key build(Sudoku game, int solutionCap, boolean canonical) {
+            int n = game.getGridDim();
+            // 4 bits per cell for the standard board, 5 for 16x16 and 25x25 boards
+            int bits = 32 - Integer.numberOfLeadingZeros(n);
+            int cellsPerLong = 64 / bits;
+            int length = (game.getCellCount() + cellsPerLong - 1) / cellsPerLong;
+            if (packed.length != length) {
+                packed = new long[length];
+                transposed = new long[length];
+            }
+            if (labels.length != n + 1) labels = new int[n + 1];
+
+            pack(game, false, canonical, bits, packed, labels);
+            long[] cells = packed;
+            if (canonical) {
+                pack(game, true, canonical, bits, transposed, labels);
+                if (compare(transposed, packed) < 0) cells = transposed;
+            }
+            return key.set(cells, solutionCap);
+        }
+    }
+
+    /**
+     * Packs the initial fields into the given buffer, optionally transposed.
+     * With canonical keys the digits are relabeled in the order of their first appearance.
+     */
+    private static void pack(Sudoku game, boolean transpose, boolean canonical, int bits,
+            long[] packed, int[] labels) {
+        int n = game.getGridDim();
+        int cellsPerLong = 64 / bits;
+        Arrays.fill(packed, 0);
+        Arrays.fill(labels, 0);
+        int nextLabel = 1;
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                int fx = transpose ? y : x;
+                int fy = transpose ? x : y;
+                if (!game.isInitial(fx, fy)) continue;
+
+                int val = game.getField(fx, fy);
+                if (canonical) {
+                    if (labels[val] == 0) labels[val] = nextLabel++;
+                    val = labels[val];
+                }
+                int idx = y * n + x;
+                packed[idx / cellsPerLong] |= (long) val << (bits * (idx % cellsPerLong));
+            }
+        }
+    }
+
+    private static int compare(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return Long.compareUnsigned(a[i], b[i]);
+        }
+        return 0;
+    }
+
+    /** key of an entry, the keys in the map are never changed */
+    private static final class Key {
+
+        private long[] cells;
+        private int solutionCap;
+        private int hash;
+
+        Key(long[] cells, int solutionCap) {
+            set(cells, solutionCap);
+        }
+
+        Key set(long[] cells, int solutionCap) {
+            this.cells = cells;
+            this.solutionCap = solutionCap;
+            this.hash = 31 * Arrays.hashCode(cells) + solutionCap;
+            return this;
+        }
+
+        /** returns a key with its own copy of the cells, to be kept in the map */
+        Key copy() {
+            return new Key(cells.clone(), solutionCap);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return solutionCap == other.solutionCap && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -4,57 +4,288 @@ import java.nio.file.Path;
 import java.nio.file.Files;
 import java.nio.file.DirectoryStream;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 class Ranker {
 
+    /** 
+     * how games are ranked, lower ranks are better:
+     * SOLUTIONS counts the solutions of a game, 
+     * TECHNIQUES grades it by the hardest solving technique it needs 
+     */
+    public enum RankFunction { SOLUTIONS, TECHNIQUES; }
+
+    /** default number of solutions after which counting stops */
+    public static final int DEFAULT_SOLUTION_CAP = 1000;
+
+    /** DLX counts the solutions of games with many of them faster than MASK */
+    private static volatile Solver.Type solverType = Solver.Type.DLX;
+    private static volatile int solutionCap = DEFAULT_SOLUTION_CAP;
+    private static volatile RankCache rankCache = new RankCache(RankCache.DEFAULT_CAPACITY, true);
+    private static volatile SolveBudget solveBudget = SolveBudget.UNLIMITED;
+    private static volatile RankFunction rankFunction = RankFunction.SOLUTIONS;
+    private static final ThreadLocal<TechniqueGrader> graders = ThreadLocal.withInitial(TechniqueGrader::new);
+
+    /** selects the solver engine used to count the solutions of ranked games */
+    public static void setSolverType(Solver.Type type) {
+        if (type == null) throw new IllegalArgumentException("Given solver type must not be null");
+        solverType = type;
+    }
+
+    /** 
+     * sets the number of solutions after which counting stops,
+     * games with more solutions are ranked as if they had exactly that many
+     */
+    public static void setSolutionCap(int cap) {
+        if (cap < 1) throw new IllegalArgumentException("Solution cap must be >= 1");
+        solutionCap = cap;
+    }
+
+    public static int getSolutionCap() {
+        return solutionCap;
+    }
+
+    /** sets the cache consulted before solving a game, null disables caching */
+    public static void setRankCache(RankCache cache) {
+        rankCache = cache;
+    }
+
+    /** returns the cache consulted before solving a game, may be null */
+    public static RankCache getRankCache() {
+        return rankCache;
+    }
+
+    /** 
+     * sets the limits of every solve done for ranking,
+     * games whose solve exceeds them are ranked as Float.NaN
+     */
+    public static void setSolveBudget(SolveBudget budget) {
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
+        solveBudget = budget;
+    }
+
+    public static SolveBudget getSolveBudget() {
+        return solveBudget;
+    }
+
+    /** selects how games are ranked by the ranker and the generator */
+    public static void setRankFunction(RankFunction function) {
+        if (function == null) throw new IllegalArgumentException("Given rank function must not be null");
+        rankFunction = function;
+    }
+
+    public static RankFunction getRankFunction() {
+        return rankFunction;
+    }
+
     public static float rankSudoku(Sudoku game, boolean verbose) {
+        if (rankFunction == RankFunction.TECHNIQUES) return rankByTechniques(game, verbose);
+        return rankSudoku(game, solutionCap, verbose);
+    }
+
+    /**
+     * Ranks the given game by the hardest technique needed to solve it,
+     * without counting solutions.
+     */
+    public static float rankByTechniques(Sudoku game, boolean verbose) {
         if (game == null) throw new IllegalArgumentException("Given game must not be null");
-        Sudoku gameToSolve = new Sudoku(game);
+        int freeFields = game.countFreeFields();
+        TechniqueGrader.Grade grade = graders.get().grade(game);
+        if (verbose)
+            System.out.println(freeFields + " free field(s), " + grade);
+        return calculateRank(grade, freeFields, game.getCellCount());
+    }
+
+    /**
+     * Ranks the given game counting at most solutionCap solutions.
+     * Returns Float.NaN if the solve exceeded the solve budget,
+     * such ranks are not cached.
+     */
+    public static float rankSudoku(Sudoku game, int solutionCap, boolean verbose) {
+        return rankSudoku(game, solutionCap, solveBudget, verbose);
+    }
+
+    /**
+     * Ranks the given game with the rank function, solving within the given budget
+     * instead of the solve budget of the ranker.
+     */
+    public static float rankSudoku(Sudoku game, SolveBudget budget, boolean verbose) {
+        if (rankFunction == RankFunction.TECHNIQUES) return rankByTechniques(game, verbose);
+        return rankSudoku(game, solutionCap, budget, verbose);
+    }
+
+    private static float rankSudoku(Sudoku game, int solutionCap, SolveBudget budget, boolean verbose) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
         
         // free fields need to be calculated from game
         // since the solver would change it
         int freeFields = game.countFreeFields();
-        int sol = gameToSolve.solve(true, false);
+        RankCache cache = rankCache;
+        Metrics metrics = Metrics.getActive();
+        int sol = cache == null ? -1 : cache.getSolutions(game, solutionCap);
+        if (sol < 0) {
+            try (SolveWorkspace workspace = SolveWorkspace.acquire()) {
+                sol = workspace.solve(game, solverType, solutionCap, budget);
+                if (metrics != null) metrics.recordSolve(workspace.getStats());
+                if (workspace.isInterrupted()) {
+                    if (verbose)
+                        System.out.println(freeFields + " free field(s), solve interrupted after " 
+                                + sol + " solution(s)");
+                    return Float.NaN;
+                }
+            }
+            if (cache != null) cache.putSolutions(game, solutionCap, sol);
+        } else if (metrics != null) {
+            metrics.recordCacheHit();
+        }
 
         if (verbose)
-            System.out.println(freeFields + " free field(s) and " + sol + " solution(s)");
-        return calculateRank(sol, freeFields);
+            System.out.println(freeFields + " free field(s) and " 
+                    + (sol >= solutionCap ? "at least " : "") + sol + " solution(s)");
+        return calculateRank(sol, freeFields, game.getCellCount());
 
     }   
 
-    private static float calculateRank(int solutions, int freeFields) {
+    /** rank of a standard 9x9 game */
+    static float calculateRank(int solutions, int freeFields) {
+        return calculateRank(solutions, freeFields, Sudoku.CELL_COUNT);
+    }
+
+    static float calculateRank(int solutions, int freeFields, int cells) {
         if (solutions < 0 || freeFields < 0)  
             throw new IllegalArgumentException("Given parameters must be >= 0");
 
         if (solutions == 0) return Float.MAX_VALUE;
 
-        return solutions + (1 - (freeFields * (1f / 81)));
+        return solutions + (1 - (freeFields * (1f / cells)));
     } 
 
+    /**
+     * Rank of a graded game: games solved by logic rank between 1 and 2, lower with
+     * harder techniques and more free fields. Games the grader got stuck on may need
+     * guessing or have several solutions and rank like games with two solutions.
+     */
+    static float calculateRank(TechniqueGrader.Grade grade, int freeFields, int cells) {
+        if (freeFields < 0) throw new IllegalArgumentException("Given parameters must be >= 0");
+
+        if (grade.isContradiction()) return Float.MAX_VALUE;
+        if (!grade.isSolved()) return calculateRank(2, freeFields, cells);
+
+        int level = grade.getHardest() == null ? 0 : grade.getHardest().ordinal() + 1;
+        return 1 + (1 - (freeFields * (1f / cells))) / (level + 1);
+    }
+
     public static void rankGames(Path gameDir) {
-        float highestRank = Float.MAX_VALUE;
-        Path highestRankPath = null;
+        rankGames(gameDir, 1);
+    }
+
+    /**
+     * Ranks all games in the given directory and prints the highest ranking one.
+     * With more than one thread the games are ranked concurrently on a work stealing pool,
+     * the result is the same as for a single thread since ties are broken by path.
+     */
+    public static void rankGames(Path gameDir, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be >= 1");
+
+        List<Path> entries = new ArrayList<>();
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(gameDir, "*.sd")) {
             for (Path entry : stream) {
-                if (Files.isRegularFile(entry)) {
-                    Sudoku game = new Sudoku();
-                    game.parseFromFile(entry);
-                    float rank = rankSudoku(game, true);
-                    System.out.println(rank + " " + entry);
-
-                    if(rank < highestRank) {
-                        highestRank = rank;
-                        highestRankPath = entry;
-                    } 
-                }
+                if (Files.isRegularFile(entry)) entries.add(entry);
             }
         } catch (Exception e) {
             System.err.println("Error reading game directory: " + gameDir + "\n " + e);
+            return;
+        }
+        Collections.sort(entries);
+
+        Float[] ranks = new Float[entries.size()];
+        if (threads == 1) {
+            for (int i = 0; i < entries.size(); i++) {
+                ranks[i] = rankFile(entries.get(i), true);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<Callable<Float>> tasks = new ArrayList<>();
+                for (Path entry : entries) tasks.add(() -> rankFile(entry, false));
+                List<Future<Float>> results = pool.invokeAll(tasks);
+                for (int i = 0; i < ranks.length; i++) ranks[i] = results.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error ranking game directory: " + gameDir + "\n " + e);
+                return;
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        float highestRank = Float.MAX_VALUE;
+        Path highestRankPath = null;
+        for (int i = 0; i < ranks.length; i++) {
+            if (ranks[i] == null) continue;
+            if (threads > 1) System.out.println(ranks[i] + " " + entries.get(i));
+
+            // entries are sorted, so the first of several equal ranks wins,
+            // interrupted ranks (NaN) never compare lower
+            if(ranks[i] < highestRank) {
+                highestRank = ranks[i];
+                highestRankPath = entries.get(i);
+            } 
         }
 
         if(highestRankPath != null)
             System.out.println("Highest ranking Sudoku: " + highestRank + " : " + highestRankPath);
     }
 
- 
+    /**
+     * Ranks all games of the given binary store and prints the highest ranking one.
+     * Cached ranks are used where the store has them for the current solution cap,
+     * ties are broken by index.
+     */
+    public static void rankStore(Path storeFile) {
+        float highestRank = Float.MAX_VALUE;
+        int highestRankIndex = -1;
+        try (PuzzleStore store = PuzzleStore.open(storeFile)) {
+            Sudoku game = new Sudoku();
+            for (int i = 0; i < store.size(); i++) {
+                // stored ranks are solution ranks counted up to the stored cap
+                float rank = rankFunction == RankFunction.SOLUTIONS
+                        && store.getSolutionCap(i) == solutionCap ? store.getRank(i) : Float.NaN;
+                if (Float.isNaN(rank)) {
+                    store.load(i, game);
+                    rank = rankSudoku(game, false);
+                }
+
+                if(rank < highestRank) {
+                    highestRank = rank;
+                    highestRankIndex = i;
+                } 
+            }
+        }
+
+        if(highestRankIndex >= 0)
+            System.out.println("Highest ranking Sudoku: " + highestRank + " : " 
+                    + storeFile + "#" + highestRankIndex);
+    }
+
+    /** returns the rank of the given game file or null if it could not be ranked */
+    private static Float rankFile(Path entry, boolean verbose) {
+        try {
+            Sudoku game = new Sudoku();
+            game.parseFromFile(entry);
+            float rank = rankSudoku(game, verbose);
+            if (verbose) System.out.println(rank + " " + entry);
+            return rank;
+        } catch (RuntimeException e) {
+            System.err.println("Error ranking game file: " + entry + "\n " + e);
+            return null;
+        }
+    }
 
 }
@@ -0,0 +1,102 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Writes solutions as fixed size records into a binary file, to be used as solution consumer.
+ *
+ * The file starts with a 16 byte header (magic, version, grid dimension, record size)
+ * followed by one record per solution with the field values indexed by y * dim + x,
+ * 4 bits per field with the even field in the low bits for boards of up to 15 values
+ * (41 bytes for 9x9) and 1 byte per field for larger boards.
+ * The number of solutions follows from the file size, all numbers are big endian.
+ * Records are packed into a reused off heap buffer that is written through a file channel
+ * whenever it is full, so writing a solution allocates nothing.
+ */
+class SolutionWriter implements Consumer<int[]>, Closeable {
+
+    public static final int MAGIC = 0x53444B53; // "SDKS"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int cells;
+    private final boolean packed;
+    private final int recordSize;
+    private long count;
+
+    /** creates or truncates the given file for solutions of boards with the given number of rows */
+    public SolutionWriter(Path file, int gridDim) {
+        if (file == null) throw new IllegalArgumentException("Given file must not be null");
+        if (gridDim < 1 || gridDim > Layout.MAX_BOX_SIZE * Layout.MAX_BOX_SIZE)
+            throw new IllegalArgumentException("Invalid grid dimension: " + gridDim);
+
+        this.cells = gridDim * gridDim;
+        this.packed = gridDim <= 15;
+        this.recordSize = packed ? (cells + 1) / 2 : cells;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE / recordSize, 1) * recordSize);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(gridDim).putInt(recordSize);
+    }
+
+    /** appends the given solution */
+    @Override
+    public void accept(int[] values) {
+        if (buffer.remaining() < recordSize) flush();
+        if (packed) {
+            for (int i = 0; i < cells; i += 2) {
+                int high = i + 1 < cells ? values[i + 1] : 0;
+                buffer.put((byte) (values[i] | high << 4));
+            }
+        } else {
+            for (int i = 0; i < cells; i++) buffer.put((byte) values[i]);
+        }
+        count++;
+    }
+
+    /** returns the number of solutions written */
+    public long getCount() {
+        return count;
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits for a single solve: a timeout, a maximum number of search steps
+ * and a cancellation token. A solve exceeding its budget stops and reports
+ * the solutions found so far as an incomplete result.
+ */
+class SolveBudget {
+
+    public static final SolveBudget UNLIMITED = new SolveBudget(0, 0, null);
+
+    /** the clock is only read every this many steps */
+    private static final long CLOCK_INTERVAL = 256;
+
+    private final long timeoutNanos;
+    private final long maxSteps;
+    private final CancellationToken token;
+
+    /**
+     * @param timeoutNanos time a solve may take, 0 for no limit
+     * @param maxSteps search steps a solve may take, 0 for no limit
+     * @param token token to cancel solves with, may be null
+     */
+    public SolveBudget(long timeoutNanos, long maxSteps, CancellationToken token) {
+        if (timeoutNanos < 0 || maxSteps < 0) 
+            throw new IllegalArgumentException("Budget limits must be >= 0");
+        this.timeoutNanos = timeoutNanos;
+        this.maxSteps = maxSteps;
+        this.token = token;
+    }
+
+    public static SolveBudget ofTimeout(long timeout, TimeUnit unit) {
+        return new SolveBudget(unit.toNanos(timeout), 0, null);
+    }
+
+    public static SolveBudget ofSteps(long maxSteps) {
+        return new SolveBudget(0, maxSteps, null);
+    }
+
+    public SolveBudget withToken(CancellationToken token) {
+        return new SolveBudget(timeoutNanos, maxSteps, token);
+    }
+
+    /** returns the deadline of a solve starting now, in System.nanoTime() terms */
+    long deadline() {
+        return timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+    }
+
+    /** returns a budget with the time left until the given deadline, used to split a solve */
+    SolveBudget remaining(long deadline) {
+        if (timeoutNanos == 0) return this;
+        return new SolveBudget(Math.max(1, deadline - System.nanoTime()), maxSteps, token);
+    }
+
+    /** returns true if a solve with the given steps and deadline has to stop */
+    boolean isExceeded(long steps, long deadline) {
+        if (maxSteps > 0 && steps >= maxSteps) return true;
+        if (token != null && token.isCancelled()) return true;
+        return timeoutNanos > 0 && steps % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline >= 0;
+    }
+
+}
@@ -0,0 +1,32 @@
+package sudoku;
+
+/**
+ * Outcome of a solve with a budget.
+ */
+class SolveResult {
+
+    private final int solutions;
+    private final boolean complete;
+    private final SolveStats stats;
+
+    SolveResult(int solutions, boolean complete, SolveStats stats) {
+        this.solutions = solutions;
+        this.complete = complete;
+        this.stats = stats;
+    }
+
+    /** returns the number of solutions found, a lower bound if the result is not complete */
+    public int getSolutions() {
+        return solutions;
+    }
+
+    /** returns false if the solve was stopped by its budget before finishing */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public SolveStats getStats() {
+        return stats;
+    }
+
+}
@@ -0,0 +1,60 @@
+package sudoku;
+
+/**
+ * Counters of a single solve.
+ */
+class SolveStats {
+
+    /** search steps, one per value tried at a branching field */
+    long steps;
+    /** values tried whose subtree was searched completely and undone */
+    long backtracks;
+    /** fields set by propagation instead of branching */
+    long propagations;
+    /** deepest branching level reached */
+    int maxDepth;
+    long elapsedNanos;
+
+    void reset() {
+        steps = 0;
+        backtracks = 0;
+        propagations = 0;
+        maxDepth = 0;
+        elapsedNanos = 0;
+    }
+
+    /** adds the counters of a solve of a part of the same game */
+    synchronized void add(SolveStats other) {
+        steps += other.steps;
+        backtracks += other.backtracks;
+        propagations += other.propagations;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getPropagations() {
+        return propagations;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "steps=" + steps + " backtracks=" + backtracks + " propagations=" + propagations
+                + " maxDepth=" + maxDepth + " elapsedNanos=" + elapsedNanos;
+    }
+
+}
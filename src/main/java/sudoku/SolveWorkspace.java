@@ -0,0 +1,81 @@
+package sudoku;
+
+/**
+ * Board and solvers kept per thread for solves whose board is thrown away afterwards,
+ * such as counting solutions for a rank. A game is solved on a copy in the workspace board,
+ * and the solvers keep their search stacks, so repeated solves of games of one size
+ * allocate nothing. Workspaces are acquired with try-with-resources:
+ *
+ *   try (SolveWorkspace workspace = SolveWorkspace.acquire()) {
+ *       int solutions = workspace.solve(game, type, limit, budget);
+ *   }
+ *
+ * A thread acquiring a workspace while it still holds one gets a new one.
+ */
+class SolveWorkspace implements AutoCloseable {
+
+    private static final ThreadLocal<SolveWorkspace> workspaces = ThreadLocal.withInitial(SolveWorkspace::new);
+
+    private final Sudoku board = new Sudoku();
+    private final Solver[] solvers = new Solver[Solver.Type.values().length];
+    private Solver lastSolver;
+    private boolean inUse;
+
+    private SolveWorkspace() {
+    }
+
+    /** returns the workspace of the current thread, or a new one if it is in use already */
+    public static SolveWorkspace acquire() {
+        SolveWorkspace workspace = workspaces.get();
+        if (workspace.inUse) workspace = new SolveWorkspace();
+        workspace.inUse = true;
+        return workspace;
+    }
+
+    /** 
+     * returns the solver of the given type of this workspace, created on first use,
+     * it keeps the budget of its previous solve until a new one is set
+     */
+    public Solver solver(Solver.Type type) {
+        if (type == null) throw new IllegalArgumentException("Given solver type must not be null");
+        Solver solver = solvers[type.ordinal()];
+        if (solver == null) {
+            solver = type.create();
+            solvers[type.ordinal()] = solver;
+        }
+        return solver;
+    }
+
+    /**
+     * Solves a copy of the given game, leaving the game itself unchanged.
+     * @param maxSolutions number of solutions after which the search stops, must be >= 1
+     * @param budget limits of the solve
+     * @return the number of solutions found, only a lower bound if isInterrupted returns true
+     */
+    public int solve(Sudoku game, Solver.Type type, int maxSolutions, SolveBudget budget) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        if (budget == null) throw new IllegalArgumentException("Given budget must not be null");
+        Solver solver = solver(type);
+        game.copyInto(board);
+        solver.setBudget(budget);
+        lastSolver = solver;
+        return solver.solve(board, maxSolutions, false);
+    }
+
+    /** returns true if the last solve was stopped by its budget before finishing */
+    public boolean isInterrupted() {
+        return lastSolver != null && lastSolver.isInterrupted();
+    }
+
+    /** returns the counters of the last solve, reused by the next one */
+    public SolveStats getStats() {
+        return lastSolver == null ? null : lastSolver.getStats();
+    }
+
+    /** returns the workspace to its thread */
+    @Override
+    public void close() {
+        inUse = false;
+    }
+
+}
@@ -0,0 +1,75 @@
+package sudoku;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Common interface of all solver engines.
+ * Implementations keep internal search state and must not be shared between threads.
+ */
+interface Solver {
+
+    /** available solver engines */
+    enum Type {
+        /** constraint propagation on digit masks, good for finding single solutions */
+        MASK,
+        /** dancing links exact cover search, good for counting all solutions */
+        DLX,
+        /** mask solver on subtrees of the search split across the common fork join pool */
+        PARALLEL;
+
+        public Solver create() {
+            switch(this) {
+                case DLX: return new DlxSolver();
+                case PARALLEL: 
+                    return new ParallelSolver(ForkJoinPool.commonPool(), ParallelSolver.DEFAULT_SPLIT_DEPTH);
+                default: return new MaskSolver();
+            }
+        }
+    }
+
+    /** solution limit meaning that all solutions are searched */
+    int UNLIMITED = Integer.MAX_VALUE;
+
+    /**
+     * Solves the given game. Only initial fields are treated as fixed.
+     * The search stops as soon as the given number of solutions was found,
+     * so a result equal to the limit means "at least that many".
+     * If the limit is 1 and a solution was found, it is written into the game,
+     * otherwise all non initial fields are cleared.
+     * @param maxSolutions number of solutions after which the search stops, must be >= 1
+     * @param verbose if true, all solutions will be printed
+     * @return the number of solutions found
+     */
+    int solve(Sudoku game, int maxSolutions, boolean verbose);
+
+    /** sets the limits for all following solves, SolveBudget.UNLIMITED by default */
+    void setBudget(SolveBudget budget);
+
+    /**
+     * Passes every solution of the following solves to the given consumer, null for none.
+     * Solutions are values indexed by y * dim + x in an array that is reused for all solutions,
+     * so consumers must copy what they want to keep.
+     */
+    void setSolutionConsumer(Consumer<int[]> consumer);
+
+    /** returns true if the last solve was stopped by its budget before finishing */
+    boolean isInterrupted();
+
+    /** returns the counters of the last solve */
+    SolveStats getStats();
+
+    /** returns the number of search steps of the last solve */
+    default long getSteps() {
+        return getStats().getSteps();
+    }
+
+    /**
+     * Solves the given game for a single or all solutions.
+     * @see #solve(Sudoku, int, boolean)
+     */
+    default int solve(Sudoku game, boolean allSolutions, boolean verbose) {
+        return solve(game, allSolutions ? UNLIMITED : 1, verbose);
+    }
+
+}
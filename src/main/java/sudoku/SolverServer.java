@@ -0,0 +1,229 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a warm solver listening on a local TCP port, so callers do not pay
+ * JVM startup for every game.
+ * Every request is one line "OPERATION game [argument]" with the game in the
+ * line format of the batch processor, answered by one line:
+ * <pre>
+ *   SOLVE game          solution or '-' if there is none
+ *   COUNT game [cap]    number of solutions, counting stops at cap (default: ranker cap)
+ *   RANK game           rank of the game
+ *   GENERATE game [n]   game generated from the given base in n steps
+ *   QUIT                closes the connection
+ * </pre>
+ * Failed requests are answered with "error" and a message.
+ * Requests of a connection are processed concurrently on a shared worker pool and
+ * answered in request order; answers are flushed once the client stops sending,
+ * so pipelined requests are batched into few writes.
+ * The solves of a connection are cancelled when its client goes away,
+ * all running solves when the server is closed.
+ */
+class SolverServer implements Closeable {
+
+    public enum Operation { SOLVE, COUNT, RANK, GENERATE, QUIT; }
+
+    public static final int DEFAULT_PORT = 9981;
+    public static final int DEFAULT_CONNECTIONS = 16;
+
+    /** requests in flight per connection */
+    private static final int MAX_PENDING = 256;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private final ThreadPoolExecutor connections;
+    private final ThreadLocal<Sudoku> boards = ThreadLocal.withInitial(Sudoku::new);
+    private final ThreadLocal<Solver> solvers = ThreadLocal.withInitial(Solver.Type.MASK::create);
+    /** parent of the tokens of all connections, cancelled on close */
+    private final CancellationToken shutdown = new CancellationToken();
+
+    /**
+     * Binds to the given port of the loopback interface, 0 picks a free port.
+     * @param threads number of workers processing requests
+     * @param maxConnections number of connections served at the same time,
+     *                       further connections are closed right away
+     */
+    public SolverServer(int port, int threads, int maxConnections) throws IOException {
+        if (port < 0) throw new IllegalArgumentException("Port must be >= 0");
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be >= 1");
+        if (maxConnections < 1) throw new IllegalArgumentException("Number of connections must be >= 1");
+        serverSocket = new ServerSocket(port, maxConnections, InetAddress.getLoopbackAddress());
+        workers = Executors.newFixedThreadPool(threads);
+        connections = new ThreadPoolExecutor(maxConnections, maxConnections,
+                0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** accepts connections until the server is closed */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                break; // closed
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            try {
+                connections.execute(() -> handle(socket));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        shutdown.cancel();
+        serverSocket.close();
+        connections.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void handle(Socket socket) {
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        CancellationToken token = new CancellationToken(shutdown);
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            while (true) {
+                // answer everything before blocking for the next request
+                if (!in.ready()) {
+                    while (!pending.isEmpty()) writeResult(pending.poll(), out);
+                    out.flush();
+                }
+                String line = in.readLine();
+                if (line == null) break;
+                String request = line.trim();
+                if (request.isEmpty()) continue;
+                if (request.equalsIgnoreCase(Operation.QUIT.name())) break;
+
+                pending.add(workers.submit(() -> processRequest(request, token)));
+                while (pending.size() >= MAX_PENDING) writeResult(pending.poll(), out);
+            }
+            while (!pending.isEmpty()) writeResult(pending.poll(), out);
+            out.flush();
+        } catch (IOException e) {
+            // client went away, its open requests are dropped and their solves stopped
+            token.cancel();
+            for (Future<String> result : pending) result.cancel(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeResult(Future<String> result, Writer out)
+            throws IOException, InterruptedException {
+        String answer;
+        try {
+            answer = result.get();
+        } catch (ExecutionException e) {
+            answer = "error " + e.getCause();
+        }
+        out.write(answer);
+        out.write('\n');
+    }
+
+    /** returns the answer line for the given request line */
+    String processRequest(String request) {
+        return processRequest(request, shutdown);
+    }
+
+    /** returns the answer line for the given request line, its solves stop once the token is cancelled */
+    String processRequest(String request, CancellationToken token) {
+        String[] parts = request.split("\\s+");
+        Operation operation;
+        try {
+            operation = Operation.valueOf(parts[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return "error unknown operation: " + parts[0];
+        }
+        if (parts.length < 2) return "error missing game";
+        if (parts.length > 3) return "error too many arguments";
+
+        Sudoku game = boards.get();
+        try {
+            game.parseFromLine(parts[1]);
+            Integer argument = parts.length == 3 ? Integer.valueOf(parts[2]) : null;
+            return process(operation, game, argument, token);
+        } catch (RuntimeException e) {
+            return "error " + e.getMessage();
+        }
+    }
+
+    private String process(Operation operation, Sudoku game, Integer argument, CancellationToken token) {
+        Metrics metrics = Metrics.getActive();
+        SolveBudget budget = Ranker.getSolveBudget().withToken(token);
+        switch (operation) {
+            case SOLVE: {
+                SolveResult result = game.solve(solvers.get(), 1, budget);
+                if (metrics != null) metrics.recordSolve(result.getStats());
+                if (!result.isComplete()) return "timeout";
+                return result.getSolutions() > 0 ? game.toLine() : "-";
+            }
+            case COUNT: {
+                int cap = argument == null ? Ranker.getSolutionCap() : argument;
+                SolveResult result = game.solve(solvers.get(), cap, budget);
+                if (metrics != null) metrics.recordSolve(result.getStats());
+                if (!result.isComplete()) return "timeout";
+                return Integer.toString(result.getSolutions());
+            }
+            case RANK: {
+                float rank = Ranker.rankSudoku(game, budget, false);
+                return Float.isNaN(rank) ? "timeout" : Float.toString(rank);
+            }
+            case GENERATE: {
+                int steps = argument == null ? Generator.DEFAULT_STEPS : argument;
+                if (steps < 0) return "error number of steps must be >= 0";
+                // the generator needs a solvable base, checked within the budget of the request
+                SolveResult base = game.solve(solvers.get(), 1, budget);
+                if (metrics != null) metrics.recordSolve(base.getStats());
+                if (!base.isComplete()) return "timeout";
+                if (base.getSolutions() == 0) return "error game is not solvable";
+                return Generator.run(new Sudoku(game), steps, token).toLine();
+            }
+            default:
+                return "error unsupported operation: " + operation;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+    }
+
+}
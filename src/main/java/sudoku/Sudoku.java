@@ -4,7 +4,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import java.lang.StringBuilder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 import java.util.Scanner;
 
@@ -13,28 +16,39 @@ import java.io.IOException;
 
 class Sudoku {
 
-    private class Field {
-        
-        public int value = 0;
-        /** indicates whether this value was set from the start of the game */
-        public boolean initial = false;
-    }
-
-
+    /** dimensions of the standard 9x9 board */
     public static final int GRID_DIM = 9;
     public static final int SUBGRID_DIM = GRID_DIM / 3;
+    public static final int CELL_COUNT = GRID_DIM * GRID_DIM;
+    /** candidate mask of the standard board with all values allowed, value v is bit v - 1 */
+    public static final int ALL_CANDIDATES = (1 << GRID_DIM) - 1;
+
+    private Layout layout;
+    /** number of rows, columns and sub grids */
+    private int dim;
+    private int cells;
+
+    /** field values indexed by y * dim + x
+     * only values from 0 - dim are allowed where 0 means empty*/
+    private byte[] values;
+    /** bitset indicating which fields were set from the start of the game */
+    private long[] initial;
+    /** 
+     * values used in every row, column and sub grid, value v is bit v - 1,
+     * kept up to date on every change so validity checks need no scanning
+     */
+    private int[] rowMasks;
+    private int[] columnMasks;
+    private int[] gridMasks;
 
-    /** first dimension for columns second for rows 
-     * only ints from 0 - 9 are allowed where 0 means empty*/
-    private final Field[][] grid;
-
+    /** creates an empty standard 9x9 board */
     public Sudoku() {
-        grid = new Field[GRID_DIM][GRID_DIM];
-        for(int x = 0; x < GRID_DIM; x++) {
-            for(int y = 0; y < GRID_DIM; y++) {
-                grid[y][x] = new Field();
-            }
-        }
+        setLayout(Layout.STANDARD);
+    }
+
+    /** creates an empty board with sub grids of boxSize x boxSize fields */
+    public Sudoku(int boxSize) {
+        setLayout(Layout.of(boxSize));
     }
 
     /**
@@ -42,30 +56,96 @@ class Sudoku {
      */
     public Sudoku(Sudoku cpy) {
         if(cpy == null) throw new IllegalArgumentException("Given sudoku must not be null.");
-        grid = new Field[GRID_DIM][GRID_DIM];
-        for(int x = 0; x < GRID_DIM; x++) {
-            for(int y = 0; y < GRID_DIM; y++) {
-                grid[y][x] = new Field();
-                grid[y][x].value = cpy.grid[y][x].value;
-                grid[y][x].initial = cpy.grid[y][x].initial;
-            }
+        setLayout(cpy.layout);
+        cpy.copyInto(this);
+    }
+
+    /**
+     * Copies all fields of this Sudoku into the given one,
+     * without allocating if both have the same size.
+     */
+    public void copyInto(Sudoku target) {
+        if(target == null) throw new IllegalArgumentException("Given sudoku must not be null.");
+        target.setLayout(layout);
+        System.arraycopy(values, 0, target.values, 0, cells);
+        System.arraycopy(initial, 0, target.initial, 0, initial.length);
+        System.arraycopy(rowMasks, 0, target.rowMasks, 0, dim);
+        System.arraycopy(columnMasks, 0, target.columnMasks, 0, dim);
+        System.arraycopy(gridMasks, 0, target.gridMasks, 0, dim);
+    }
+
+    /** switches to the given board size, clearing all fields if the size changes */
+    void setLayout(Layout layout) {
+        if (this.layout == layout) return;
+        this.layout = layout;
+        dim = layout.dim;
+        cells = layout.cells;
+        values = new byte[cells];
+        initial = new long[(cells + 63) / 64];
+        rowMasks = new int[dim];
+        columnMasks = new int[dim];
+        gridMasks = new int[dim];
+    }
+
+    Layout getLayout() {
+        return layout;
+    }
+
+    /** returns the size of the sub grids, 3 for the standard board */
+    public int getBoxSize() {
+        return layout.boxSize;
+    }
+
+    /** returns the number of rows and columns, which is also the largest value */
+    public int getGridDim() {
+        return dim;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+
+    /** stores the value of the field with the given index and updates the masks */
+    private void putValue(int idx, int value) {
+        int x = layout.col[idx];
+        int y = layout.row[idx];
+        int b = layout.box[idx];
+        int old = values[idx];
+        if (old != 0) {
+            int keep = ~(1 << (old - 1));
+            rowMasks[y] &= keep;
+            columnMasks[x] &= keep;
+            gridMasks[b] &= keep;
         }
+        values[idx] = (byte) value;
+        if (value != 0) {
+            int bit = 1 << (value - 1);
+            rowMasks[y] |= bit;
+            columnMasks[x] |= bit;
+            gridMasks[b] |= bit;
+        }
+    }
 
+    private boolean initialBit(int idx) {
+        return (initial[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    private void setInitialBit(int idx, boolean set) {
+        if (set) initial[idx >>> 6] |= 1L << idx;
+        else initial[idx >>> 6] &= ~(1L << idx);
     }
 
     public int getField(int x, int y) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+        if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
 
-        return grid[y][x].value;
+        return values[y * dim + x];
     }
 
     public int countFreeFields() {
         int free = 0;
-        for(int x = 0; x < GRID_DIM; x++) {
-            for(int y = 0; y < GRID_DIM; y++) {
-                if(grid[y][x].value == 0) free++;
-            }
+        for(int i = 0; i < cells; i++) {
+            if(values[i] == 0) free++;
         }
         return free;
     }
@@ -77,137 +157,229 @@ class Sudoku {
      * If setting was successful, true is returned. 
      */
     public boolean setField(int x, int y, int value) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+        if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        if(value < 1 || value > 9)
+        if(value < 1 || value > dim)
             throw new IllegalArgumentException("Invalid field value: " + value );
 
         if(isValid(x,y,value)) {
-            grid[y][x].value = value;
+            putValue(y * dim + x, value);
             return true;
         }
         return false;
     }
 
     public boolean isSet(int x, int y) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+        if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        return grid[y][x].value != 0; 
+        return values[y * dim + x] != 0; 
     }
 
-    private boolean isInitial(int x, int y) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+    boolean isInitial(int x, int y) {
+        if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        return isSet(x,y) && grid[y][x].initial; 
+        return isSet(x,y) && initialBit(y * dim + x); 
     }
 
     public void makeAllInitial() {
-         for(int x = 0; x < GRID_DIM; x++) {
-            for(int y = 0; y < GRID_DIM; y++) {
-                if (isSet(x,y)) grid[y][x].initial = true;
-            }
+        for(int i = 0; i < cells; i++) {
+            if (values[i] != 0) setInitialBit(i, true);
+        }
+    }
+
+    /** clears all fields which are not initial */
+    void clearNonInitial() {
+        for(int i = 0; i < cells; i++) {
+            if (!initialBit(i) && values[i] != 0) putValue(i, 0);
         }
     }
 
+    /** 
+     * Fills all non initial fields with the given values, indexed by y * dim + x.
+     * The values are expected to be a valid solution for the initial fields.
+     */
+    void fillNonInitial(int[] values) {
+        // clearing an old value later could remove a mask bit a new value set before
+        clearNonInitial();
+        for(int i = 0; i < cells; i++) {
+            if (!initialBit(i)) putValue(i, values[i]);
+        }
+    }
+
+    /** 
+     * Sets the field with the given index y * dim + x without any validation,
+     * used to load trusted binary data. The value must not conflict with other fields,
+     * including the old values of fields not overwritten yet, so loading into a board
+     * that holds values must start with clearAll.
+     */
+    void setFieldUnchecked(int idx, int value, boolean isInitial) {
+        putValue(idx, value);
+        setInitialBit(idx, isInitial);
+    }
+
     public void clearField(int x, int y) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+        if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        grid[y][x].value = 0;
-        grid[y][x].initial = false; 
+        putValue(y * dim + x, 0);
+        setInitialBit(y * dim + x, false); 
     }
 
     public boolean isValid(int x, int y, int value) {
-         if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+         if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-         if(value < 1 || value > 9)
+         if(value < 1 || value > dim)
             throw new IllegalArgumentException("Invalid field value: " + value );
 
-        return checkGrid(x,y,value) && checkRow(x, y, value) && checkColumn(x,y,value); 
+        return (candidates(y * dim + x) & (1 << (value - 1))) != 0;
     }
 
-    private boolean checkRow(int x, int y, int value) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
+    /** 
+     * Returns the values the given field could be set to as a mask, value v is bit v - 1.
+     * The current value of the field itself does not restrict it.
+     */
+    public int getCandidates(int x, int y) {
+        if(x < 0 || x >= dim || y < 0 || y >= dim)
             throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        if(value < 1 || value > 9)
-            throw new IllegalArgumentException("Invalid field value: " + value );
-       
-        for(int xx = 0; xx < GRID_DIM; xx++) {
-            if (xx != x && getField(xx,y) == value) return false;
-        } 
-        return true;
+        return candidates(y * dim + x);
     }
 
-    private boolean checkColumn(int x, int y, int value) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
-            throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        if(value < 1 || value > 9)
-            throw new IllegalArgumentException("Invalid field value: " + value );
-       
-        for(int yy = 0; yy < GRID_DIM; yy++) {
-            if (yy != y && getField(x,yy) == value) return false;
-        } 
-        return true;
+    /** 
+     * Writes the candidate mask of every empty field into the given array,
+     * indexed by y * dim + x, set fields get 0.
+     * @return the number of empty fields
+     */
+    public int getAllCandidates(int[] candidates) {
+        if(candidates == null || candidates.length < cells)
+            throw new IllegalArgumentException("Given array must hold " + cells + " fields");
+        int free = 0;
+        for (int i = 0; i < cells; i++) {
+            if (values[i] == 0) {
+                candidates[i] = candidates(i);
+                free++;
+            } else {
+                candidates[i] = 0;
+            }
+        }
+        return free;
     }
 
-    private boolean checkGrid(int x, int y, int value) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
-            throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        if(value < 1 || value > 9)
-            throw new IllegalArgumentException("Invalid field value: " + value );
-       
-        // calculate sub 3x4 grid start values
-        int x_s = x / SUBGRID_DIM * SUBGRID_DIM;
-        int y_s = y / SUBGRID_DIM * SUBGRID_DIM;
-
-        for(int xx = x_s; xx < x_s + SUBGRID_DIM; xx++) {
-            for(int yy = y_s; yy < y_s + SUBGRID_DIM; yy++) {
-                if (xx != x && yy != y && getField(xx,yy) == value) return false;
-            }
-        } 
-        return true;
+    private int candidates(int idx) {
+        int used = rowMasks[layout.row[idx]] | columnMasks[layout.col[idx]] | gridMasks[layout.box[idx]];
+        // fields never conflict, so the own value is only used by the field itself
+        if (values[idx] != 0) used &= ~(1 << (values[idx] - 1));
+        return ~used & layout.allValues;
     }
 
+    /**
+     * Parses a game from a file of whitespace separated numbers, 0 for empty fields.
+     * The size of the board follows from the number of fields: 81 for 9x9,
+     * 256 for 16x16 or 625 for 25x25 boards.
+     */
     public void parseFromFile(Path fileName) {
         if (fileName == null || !Files.exists(fileName))
             throw new IllegalArgumentException("Given file does not exist: " + fileName);
 
-        Scanner in; 
-        try {     
-            in = new Scanner(fileName);
+        List<Integer> fields = new ArrayList<>();
+        try (Scanner in = new Scanner(fileName)) {
+            while (in.hasNext()) {
+                if(!in.hasNextInt())
+                    throw new RuntimeException("Given Sudoku file has invalid format: " + fileName);
+                fields.add(in.nextInt());
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
 
-        for(int y = 0; y < GRID_DIM; y++) {
-            for(int x = 0; x < GRID_DIM; x++) {
-                if(!in.hasNextInt())
-                    throw new RuntimeException("Given Sudoku file has invalid format: " + fileName);
-
-                int value = in.nextInt();
+        Layout fileLayout = Layout.forCells(fields.size());
+        if (fileLayout == null)
+            throw new RuntimeException("Given Sudoku file has invalid format: " + fileName);
+        setLayout(fileLayout);
+        clearAll();
+        for(int y = 0; y < dim; y++) {
+            for(int x = 0; x < dim; x++) {
+                int value = fields.get(y * dim + x);
                 if(value == 0) clearField(x,y);
                 else {
-                    if(!setField(x,y,value))
+                    if(value < 0 || value > dim || !setField(x,y,value))
                        throw new RuntimeException("Given Sudoku file has invalid "
                                + "playing field at: " + x + "x" + y);
                     else
-                        grid[y][x].initial = true;
+                        setInitialBit(y * dim + x, true);
+                }
+            }
+        }
+
+    }
+
+    /** clears all fields, so old values can not conflict with newly parsed or loaded ones */
+    void clearAll() {
+        Arrays.fill(values, (byte) 0);
+        Arrays.fill(initial, 0L);
+        Arrays.fill(rowMasks, 0);
+        Arrays.fill(columnMasks, 0);
+        Arrays.fill(gridMasks, 0);
+    }
+
+    /**
+     * Parses a game from a single line with one character per field,
+     * '1' - '9' and 'A' - 'P' for the values 1 - 25 and '0' or '.' for empty ones.
+     * The size of the board follows from the length of the line.
+     */
+    public void parseFromLine(String line) {
+        Layout lineLayout = line == null ? null : Layout.forCells(line.length());
+        if (lineLayout == null)
+            throw new RuntimeException("Given Sudoku line has invalid length: " + line);
+
+        setLayout(lineLayout);
+        clearAll();
+        for(int y = 0; y < dim; y++) {
+            for(int x = 0; x < dim; x++) {
+                char c = line.charAt(y * dim + x);
+                if(c != '0' && c != '.') {
+                    int value = valueOf(c);
+                    if(value < 1 || value > dim)
+                        throw new RuntimeException("Given Sudoku line has invalid format: " + line);
+                    if(!setField(x,y,value))
+                       throw new RuntimeException("Given Sudoku line has invalid "
+                               + "playing field at: " + x + "x" + y);
+                    else
+                        setInitialBit(y * dim + x, true);
                 }
             }
         }
+    }
 
+    /** returns the value of the given line character or -1 if it is none */
+    private static int valueOf(char c) {
+        if (c >= '1' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'Z') return c - 'A' + 10;
+        return -1;
+    }
+
+    /** returns the game as a single line with '.' for empty fields */
+    public String toLine() {
+        StringBuilder bld = new StringBuilder(cells);
+        for(int i = 0; i < cells; i++) {
+            if(values[i] == 0) bld.append('.');
+            else if(values[i] <= 9) bld.append(values[i]);
+            else bld.append((char) ('A' + values[i] - 10));
+        }
+        return bld.toString();
     }
 
     @Override
     public String toString() {
+        int boxSize = layout.boxSize;
         StringBuilder bld = new StringBuilder();
-        for (int y = 0; y < GRID_DIM; y++) {
-            for(int x = 0; x < GRID_DIM; x++) {
-                bld.append(grid[y][x].value);
-                if(x % SUBGRID_DIM == 2) bld.append(" ");
+        for (int y = 0; y < dim; y++) {
+            for(int x = 0; x < dim; x++) {
+                if(dim > 9 && values[y * dim + x] < 10) bld.append(" ");
+                bld.append(values[y * dim + x]);
+                if(x % boxSize == boxSize - 1) bld.append(" ");
                 bld.append(" ");
             }
 
-            if(y % SUBGRID_DIM == 2) bld.append("\n");
+            if(y % boxSize == boxSize - 1) bld.append("\n");
             bld.append("\n");
         }
 
@@ -215,84 +387,71 @@ class Sudoku {
     }
 
 
-    /** solve given sudoku using backtracking
+    /** solve given sudoku using constraint propagation and backtracking,
+     * only initial fields are treated as fixed
      * @param allSolutions specifies if a single solution or all solutions should be found 
      * @param verbose if true, all solutions will be printed
      * @return the number of solutions the algorithm could find
      **/
     public int solve(boolean allSolutions, boolean verbose) {
-       int x = 0;
-       int y = 0;
-       int steps = 0;
-       int solutions = 0;
-
-       boolean goBack = false;
-       // while not iterated through all possible combinations yet
-       while(!(x == GRID_DIM - 1 && y == -1)) {
-           steps++;
-           if(!isInitial(x,y)) {
-
-               goBack = false; // go forward
-               if(!tryIncrease(x,y)) {
-                   clearField(x,y);
-                   goBack = true;
-               }
-
-           } 
-           
-           // move through grid
-           if(goBack) {
-               x--;
-               if(x < 0) {
-                   x = GRID_DIM - 1;
-                   y--;
-               }
-           } else {
-              x++;
-              if(x >= GRID_DIM) {
-                  x = 0;
-                  y++;
-              }
-           }
-
-           // if we found a valid solution, set
-           // the position back to the last Sudoku field            
-           if (x == 0 && y == GRID_DIM) {
-               if (verbose)
-                  System.out.println("Solution found:\n" + this);
-               
-               solutions++;
-               if(!allSolutions && solutions == 1) break;
-               
-               goBack = true;
-               x = GRID_DIM - 1;
-               y = GRID_DIM - 1;
-           } 
-      }
-
-      if (verbose)
-         System.out.println("Solver steps: " + steps);
-
-      return solutions;
-    }
-
-    private boolean canMove(int x, int y, boolean goBack) {
-        if(goBack) {
-            return !(x == GRID_DIM - 1 && y == -1);
-        } else {
-            return !(x == 0 && y == GRID_DIM);
+        return solve(Solver.Type.MASK.create(), allSolutions, verbose);
+    }
+
+    /** solve given sudoku with the given solver engine
+     * @param solver the engine to use
+     * @param allSolutions specifies if a single solution or all solutions should be found 
+     * @param verbose if true, all solutions will be printed
+     * @return the number of solutions the algorithm could find
+     **/
+    public int solve(Solver solver, boolean allSolutions, boolean verbose) {
+        if (solver == null) throw new IllegalArgumentException("Given solver must not be null");
+        int solutions = solver.solve(this, allSolutions, verbose);
+        if (verbose)
+            System.out.println("Solver steps: " + solver.getSteps());
+        return solutions;
+    }
+
+    /** solve given sudoku with the given solver engine within the given budget
+     * @param solver the engine to use
+     * @param maxSolutions number of solutions after which the search stops, must be >= 1
+     * @param budget limits of the solve, the solver keeps it for following solves
+     * @return the solutions found, which are only a lower bound if the budget was exceeded
+     **/
+    public SolveResult solve(Solver solver, int maxSolutions, SolveBudget budget) {
+        if (solver == null) throw new IllegalArgumentException("Given solver must not be null");
+        solver.setBudget(budget);
+        int solutions = solver.solve(this, maxSolutions, false);
+        return new SolveResult(solutions, !solver.isInterrupted(), solver.getStats());
+    }
+
+    /** pass every solution of this sudoku to the given consumer, stopping once the given limit is reached
+     * @param solver the engine to use
+     * @param limit number of solutions after which the search stops, must be >= 1
+     * @param consumer receives the values of every solution indexed by y * dim + x
+     *        in an array reused for all solutions
+     * @return the number of solutions found
+     **/
+    public int forEachSolution(Solver solver, int limit, Consumer<int[]> consumer) {
+        if (solver == null) throw new IllegalArgumentException("Given solver must not be null");
+        if (consumer == null) throw new IllegalArgumentException("Given consumer must not be null");
+        if (limit < 1) throw new IllegalArgumentException("Solution limit must be >= 1");
+        solver.setSolutionConsumer(consumer);
+        try {
+            return solver.solve(this, limit, false);
+        } finally {
+            solver.setSolutionConsumer(null);
         }
     }
 
-    private boolean tryIncrease(int x, int y) {
-        if(x < 0 || x >= GRID_DIM || y < 0 || y >= GRID_DIM)
-            throw new IllegalArgumentException("Invalid field coordinates: " + x + "x" + y );
-        int val = getField(x,y);
-        while(true) {
-            val += 1;
-            if(val > 9) return false;
-            if(setField(x,y,val)) return true;
-        } 
+    /** count the solutions of this sudoku, stopping once the given limit is reached
+     * @param solver the engine to use
+     * @param limit number of solutions after which counting stops, must be >= 1
+     * @return the number of solutions found, a result equal to limit means at least limit solutions
+     **/
+    public int countSolutions(Solver solver, int limit) {
+        if (solver == null) throw new IllegalArgumentException("Given solver must not be null");
+        if (limit < 1) throw new IllegalArgumentException("Solution limit must be >= 1");
+        return solver.solve(this, limit, false);
     }
 
 }
@@ -0,0 +1,361 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Grades a game by the hardest solving technique a human needs for it.
+ * The grader fills the game by logic alone, always applying the easiest technique
+ * that makes progress, and stops once the game is solved or no technique applies.
+ * Only initial fields are treated as given, boards of all sizes are supported.
+ * Instances are not thread safe.
+ */
+class TechniqueGrader {
+
+    /** solving techniques, ordered from easiest to hardest */
+    public enum Technique {
+        NAKED_SINGLE, HIDDEN_SINGLE, LOCKED_CANDIDATES, NAKED_PAIR, HIDDEN_PAIR,
+        NAKED_TRIPLE, HIDDEN_TRIPLE, X_WING;
+    }
+
+    private static final int ROWS = 0;
+
+    /** outcome of grading a game */
+    public static class Grade {
+
+        private final boolean solved;
+        private final boolean contradiction;
+        private final Technique hardest;
+        private final int[] counts;
+
+        Grade(boolean solved, boolean contradiction, Technique hardest, int[] counts) {
+            this.solved = solved;
+            this.contradiction = contradiction;
+            this.hardest = hardest;
+            this.counts = counts;
+        }
+
+        /** returns true if the game was solved by the known techniques, so its solution is unique */
+        public boolean isSolved() {
+            return solved;
+        }
+
+        /** returns true if the game has no solution */
+        public boolean isContradiction() {
+            return contradiction;
+        }
+
+        /** returns the hardest technique applied or null if none was needed */
+        public Technique getHardest() {
+            return hardest;
+        }
+
+        /** returns how often the given technique made progress */
+        public int getCount(Technique technique) {
+            return counts[technique.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            if (contradiction) return "no solution";
+            String technique = hardest == null ? "none" : hardest.name();
+            return (solved ? "solved, hardest technique " : "stuck, hardest technique ") + technique;
+        }
+    }
+
+    private final Sudoku board = new Sudoku();
+    /** board the tables below are set up for */
+    private Layout layout;
+    private int n;
+    private int cells;
+    private int allValues;
+    private int columns;
+    private int boxes;
+    /** cell indices (y * n + x) of all rows, columns and boxes */
+    private int[][] units;
+    /** row, column and box unit of every cell */
+    private int[][] unitsOf;
+    private int[] values;
+    private int[] candidates;
+    private int free;
+    private boolean contradiction;
+
+    public Grade grade(Sudoku game) {
+        if (game == null) throw new IllegalArgumentException("Given game must not be null");
+        game.copyInto(board);
+        board.clearNonInitial();
+        setLayout(board.getLayout());
+        free = board.getAllCandidates(candidates);
+        contradiction = false;
+        for (int i = 0; i < cells; i++) {
+            values[i] = board.getField(i % n, i / n);
+            // the techniques only notice empty cells losing their last candidate
+            if (values[i] == 0 && candidates[i] == 0) contradiction = true;
+        }
+
+        int[] counts = new int[Technique.values().length];
+        Technique hardest = null;
+        while (free > 0 && !contradiction) {
+            Technique applied = applyEasiest();
+            if (applied == null || contradiction) break;
+            counts[applied.ordinal()]++;
+            if (hardest == null || applied.compareTo(hardest) > 0) hardest = applied;
+        }
+        return new Grade(free == 0 && !contradiction, contradiction, hardest, counts);
+    }
+
+    private void setLayout(Layout layout) {
+        if (this.layout == layout) return;
+        this.layout = layout;
+        n = layout.dim;
+        cells = layout.cells;
+        allValues = layout.allValues;
+        columns = n;
+        boxes = 2 * n;
+        units = layout.units;
+        unitsOf = new int[cells][];
+        for (int i = 0; i < cells; i++) {
+            unitsOf[i] = new int[] { ROWS + layout.row[i], columns + layout.col[i], boxes + layout.box[i] };
+        }
+        values = new int[cells];
+        candidates = new int[cells];
+    }
+
+    /** applies the easiest technique making progress and returns it or null if none does */
+    private Technique applyEasiest() {
+        if (nakedSingle()) return Technique.NAKED_SINGLE;
+        if (hiddenSingle()) return Technique.HIDDEN_SINGLE;
+        if (lockedCandidates()) return Technique.LOCKED_CANDIDATES;
+        if (nakedSubset(2)) return Technique.NAKED_PAIR;
+        if (hiddenSubset(2)) return Technique.HIDDEN_PAIR;
+        if (nakedSubset(3)) return Technique.NAKED_TRIPLE;
+        if (hiddenSubset(3)) return Technique.HIDDEN_TRIPLE;
+        if (xWing()) return Technique.X_WING;
+        return null;
+    }
+
+    private void place(int cell, int value) {
+        values[cell] = value;
+        candidates[cell] = 0;
+        free--;
+        int keep = ~(1 << (value - 1));
+        for (int u : unitsOf[cell]) {
+            for (int i : units[u]) {
+                if (values[i] != 0) continue;
+                candidates[i] &= keep;
+                if (candidates[i] == 0) contradiction = true;
+            }
+        }
+    }
+
+    /** removes the given candidates from a free cell and returns true if any were set */
+    private boolean eliminate(int cell, int mask) {
+        if (values[cell] != 0 || (candidates[cell] & mask) == 0) return false;
+        candidates[cell] &= ~mask;
+        if (candidates[cell] == 0) contradiction = true;
+        return true;
+    }
+
+    /** places all naked singles found in one pass over the cells */
+    private boolean nakedSingle() {
+        boolean progress = false;
+        for (int i = 0; i < cells && !contradiction; i++) {
+            if (values[i] == 0 && Integer.bitCount(candidates[i]) == 1) {
+                place(i, Integer.numberOfTrailingZeros(candidates[i]) + 1);
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    private boolean hiddenSingle() {
+        for (int[] unit : units) {
+            int placed = 0;
+            int once = 0;
+            int twice = 0;
+            for (int i : unit) {
+                if (values[i] != 0) placed |= 1 << (values[i] - 1);
+                twice |= once & candidates[i];
+                once |= candidates[i];
+            }
+            if ((placed | once) != allValues) {
+                // a value fits nowhere in this unit
+                contradiction = true;
+                return true;
+            }
+            int hidden = once & ~twice;
+            if (hidden == 0) continue;
+            int bit = Integer.lowestOneBit(hidden);
+            for (int i : unit) {
+                if ((candidates[i] & bit) != 0) {
+                    place(i, Integer.numberOfTrailingZeros(bit) + 1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A value whose candidates in a box all lie in one row or column can be removed from
+     * the rest of that line and vice versa (pointing pairs and box line reduction).
+     */
+    private boolean lockedCandidates() {
+        for (int u = 0; u < units.length; u++) {
+            for (int d = 0; d < n; d++) {
+                int bit = 1 << d;
+                // units of the other kinds shared by all cells of u holding the value
+                int row = -1;
+                int column = -1;
+                int box = -1;
+                boolean any = false;
+                for (int i : units[u]) {
+                    if ((candidates[i] & bit) == 0) continue;
+                    int[] cellUnits = unitsOf[i];
+                    row = !any || row == cellUnits[0] ? cellUnits[0] : -2;
+                    column = !any || column == cellUnits[1] ? cellUnits[1] : -2;
+                    box = !any || box == cellUnits[2] ? cellUnits[2] : -2;
+                    any = true;
+                }
+                if (!any) continue;
+
+                if (u >= boxes) {
+                    if (row >= 0 && eliminateOutside(row, u, bit)) return true;
+                    if (column >= 0 && eliminateOutside(column, u, bit)) return true;
+                } else if (box >= 0 && eliminateOutside(box, u, bit)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** removes the given candidates from all cells of unit that are not in unit other */
+    private boolean eliminateOutside(int unit, int other, int mask) {
+        boolean progress = false;
+        for (int i : units[unit]) {
+            if (!contains(units[other], i)) progress |= eliminate(i, mask);
+        }
+        return progress;
+    }
+
+    /**
+     * k free cells of a unit having only k candidates together
+     * take these candidates from all other cells of the unit.
+     */
+    private boolean nakedSubset(int k) {
+        int[] subsetCells = new int[n];
+        for (int[] unit : units) {
+            int count = 0;
+            for (int i : unit) {
+                int bits = Integer.bitCount(candidates[i]);
+                if (values[i] == 0 && bits >= 2 && bits <= k) subsetCells[count++] = i;
+            }
+            if (count < k) continue;
+            if (nakedSubset(unit, subsetCells, count, k, 0, 0, 0)) return true;
+        }
+        return false;
+    }
+
+    private boolean nakedSubset(int[] unit, int[] cells, int count, int k,
+            int start, int chosen, int union) {
+        if (chosen == k) {
+            if (Integer.bitCount(union) != k) return false;
+            boolean progress = false;
+            for (int i : unit) {
+                if ((candidates[i] & ~union) != 0) progress |= eliminate(i, union);
+            }
+            return progress;
+        }
+        for (int c = start; c < count; c++) {
+            int next = union | candidates[cells[c]];
+            if (Integer.bitCount(next) > k) continue;
+            if (nakedSubset(unit, cells, count, k, c + 1, chosen + 1, next)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * k values of a unit that only fit into the same k free cells
+     * remove all other candidates from these cells.
+     */
+    private boolean hiddenSubset(int k) {
+        int[] positions = new int[n];
+        for (int[] unit : units) {
+            Arrays.fill(positions, 0);
+            for (int p = 0; p < n; p++) {
+                int cand = candidates[unit[p]];
+                for (int d = 0; d < n; d++) {
+                    if ((cand & (1 << d)) != 0) positions[d] |= 1 << p;
+                }
+            }
+            if (hiddenSubset(unit, positions, k, 0, 0, 0, 0)) return true;
+        }
+        return false;
+    }
+
+    private boolean hiddenSubset(int[] unit, int[] positions, int k,
+            int start, int chosen, int digits, int union) {
+        if (chosen == k) {
+            if (Integer.bitCount(union) != k) return false;
+            boolean progress = false;
+            for (int p = 0; p < n; p++) {
+                if ((union & (1 << p)) != 0) progress |= eliminate(unit[p], ~digits & allValues);
+            }
+            return progress;
+        }
+        for (int d = start; d < n; d++) {
+            int count = Integer.bitCount(positions[d]);
+            // values with a single position are hidden singles
+            if (count < 2 || count > k) continue;
+            int next = union | positions[d];
+            if (Integer.bitCount(next) > k) continue;
+            if (hiddenSubset(unit, positions, k, d + 1, chosen + 1, digits | 1 << d, next))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * A value limited to the same two columns in two rows can be removed from the rest
+     * of these columns, and the same with rows and columns swapped.
+     */
+    private boolean xWing() {
+        for (int lines = ROWS; lines <= columns; lines += n) {
+            int crossLines = lines == ROWS ? columns : ROWS;
+            for (int d = 0; d < n; d++) {
+                int bit = 1 << d;
+                int[] positions = new int[n];
+                for (int l = 0; l < n; l++) {
+                    int[] line = units[lines + l];
+                    for (int p = 0; p < n; p++) {
+                        if ((candidates[line[p]] & bit) != 0) positions[l] |= 1 << p;
+                    }
+                }
+                for (int a = 0; a < n; a++) {
+                    if (Integer.bitCount(positions[a]) != 2) continue;
+                    for (int b = a + 1; b < n; b++) {
+                        if (positions[b] != positions[a]) continue;
+                        boolean progress = false;
+                        for (int p = 0; p < n; p++) {
+                            if ((positions[a] & (1 << p)) == 0) continue;
+                            int[] cross = units[crossLines + p];
+                            for (int l = 0; l < n; l++) {
+                                if (l != a && l != b) progress |= eliminate(cross[l], bit);
+                            }
+                        }
+                        if (progress) return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] unit, int cell) {
+        for (int i : unit) {
+            if (i == cell) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,48 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchProcessorTest {
+
+    private static final String GAME =
+            "...187..44....53.....6......6......3.31769...7.......1..5.....78..91.4...9...4...";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void ignoresRankBehindGame() throws IOException {
+        Path batch = folder.newFile("bulk.txt").toPath();
+        Files.write(batch, Arrays.asList(GAME + " 42.5", GAME), StandardCharsets.US_ASCII);
+
+        StringWriter out = new StringWriter();
+        assertEquals(2, new BatchProcessor(BatchProcessor.Operation.SOLVE, 1).process(batch, out));
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(lines[1], lines[0]);
+        assertEquals(GAME, lines[0].split(" ")[0]);
+        assertEquals(81, lines[0].split(" ")[1].length());
+    }
+
+    @Test
+    public void deduplicatesBulkOutput() throws IOException {
+        Path batch = folder.newFile("bulk.txt").toPath();
+        Files.write(batch, Arrays.asList(GAME + " 42.5", GAME + "\t7"), StandardCharsets.US_ASCII);
+
+        StringWriter out = new StringWriter();
+        assertEquals(1, new Deduplicator(1).dedup(batch, out));
+        assertEquals("2", out.toString().split(" ")[1]);
+    }
+
+}
@@ -0,0 +1,33 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void trendIsSampledWhenFull() {
+        Metrics metrics = new Metrics();
+        int steps = 10 * Metrics.MAX_TREND;
+        for (int step = 0; step < steps; step++) metrics.recordGeneratorStep(0, step, true, 1f);
+        assertEquals(steps, metrics.getAcceptedSteps());
+
+        String[] lines = metrics.toCsv().split("\n");
+        int trend = 0;
+        int lastStep = -1;
+        for (String line : lines) {
+            if (!line.startsWith("trend,")) continue;
+            int step = Integer.parseInt(line.split(",")[3]);
+            assertTrue(step > lastStep);
+            lastStep = step;
+            trend++;
+        }
+        assertTrue(trend <= Metrics.MAX_TREND);
+        assertTrue(trend >= Metrics.MAX_TREND / 4);
+        // the sampled steps still cover the whole run
+        assertTrue(lastStep >= steps - steps / trend * 2);
+    }
+
+}
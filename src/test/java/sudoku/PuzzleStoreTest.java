@@ -0,0 +1,97 @@
+package sudoku;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PuzzleStoreTest {
+
+    private static final Path GAMES = Paths.get("src/main/resources/games");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadingIntoReusedBoardMatchesFreshBoard() throws IOException {
+        Path file = folder.newFile("games.sdb").toPath();
+        int games = PuzzleStore.writeFromDirectory(GAMES, file, false);
+
+        try (PuzzleStore store = PuzzleStore.open(file)) {
+            assertEquals(games, store.size());
+            Sudoku reused = new Sudoku();
+            for (int i = 0; i < store.size(); i++) {
+                store.load(i, reused);
+                Sudoku fresh = new Sudoku();
+                store.load(i, fresh);
+                assertEquals(fresh.toLine(), reused.toLine());
+                assertArrayEquals("candidates of record " + i, candidates(fresh), candidates(reused));
+            }
+        }
+    }
+
+    @Test
+    public void loadingTwoRecordsIntoOneBoard() throws IOException {
+        Path file = folder.newFile("games.sdb").toPath();
+        PuzzleStore.writeFromDirectory(GAMES, file, false);
+
+        try (PuzzleStore store = PuzzleStore.open(file)) {
+            for (int first = 0; first < store.size(); first++) {
+                for (int second = 0; second < store.size(); second++) {
+                    if (first == second) continue;
+                    Sudoku expected = new Sudoku();
+                    store.load(second, expected);
+
+                    Sudoku board = new Sudoku();
+                    store.load(first, board);
+                    assertNotEquals(expected.toLine(), board.toLine());
+                    store.load(second, board);
+                    assertEquals(expected.toLine(), board.toLine());
+                    assertArrayEquals("record " + second + " after " + first,
+                            candidates(expected), candidates(board));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void storesSolutionCapOfRanks() throws IOException {
+        Path unranked = folder.newFile("unranked.sdb").toPath();
+        PuzzleStore.writeFromDirectory(GAMES, unranked, false);
+        try (PuzzleStore store = PuzzleStore.open(unranked)) {
+            assertEquals(0, store.getSolutionCap(0));
+        }
+
+        Path ranked = folder.newFile("ranked.sdb").toPath();
+        int cap = Ranker.getSolutionCap();
+        Ranker.setSolutionCap(3);
+        try {
+            PuzzleStore.writeFromDirectory(GAMES, ranked, true);
+        } finally {
+            Ranker.setSolutionCap(cap);
+        }
+        try (PuzzleStore store = PuzzleStore.open(ranked)) {
+            for (int i = 0; i < store.size(); i++) {
+                assertEquals(3, store.getSolutionCap(i));
+                assertTrue(store.getSolutions(i) <= 3);
+            }
+        }
+    }
+
+    private static int[] candidates(Sudoku game) {
+        int[] candidates = new int[game.getCellCount()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = game.getCandidates(i % game.getGridDim(), i / game.getGridDim());
+        }
+        return candidates;
+    }
+
+}
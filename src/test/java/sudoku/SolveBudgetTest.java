@@ -0,0 +1,74 @@
+package sudoku;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SolveBudgetTest {
+
+    /** an empty board has far too many solutions to count them all */
+    private static SolveResult countEmptyBoard(Solver.Type type, SolveBudget budget) {
+        return new Sudoku().solve(type.create(), Integer.MAX_VALUE, budget);
+    }
+
+    @Test
+    public void tokenStopsEverySolver() {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            for (Solver.Type type : Solver.Type.values()) {
+                CancellationToken token = new CancellationToken();
+                timer.schedule(token::cancel, 100, TimeUnit.MILLISECONDS);
+                SolveResult result = countEmptyBoard(type, SolveBudget.UNLIMITED.withToken(token));
+                assertFalse(type + " finished", result.isComplete());
+            }
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parentTokenStopsEverySolver() {
+        for (Solver.Type type : Solver.Type.values()) {
+            CancellationToken parent = new CancellationToken();
+            parent.cancel();
+            SolveBudget budget = SolveBudget.UNLIMITED.withToken(new CancellationToken(parent));
+            assertFalse(type + " finished", countEmptyBoard(type, budget).isComplete());
+        }
+    }
+
+    @Test
+    public void timeoutStopsEverySolver() {
+        for (Solver.Type type : Solver.Type.values()) {
+            Solver solver = type.create();
+            solver.setBudget(SolveBudget.ofTimeout(100, TimeUnit.MILLISECONDS));
+            solver.solve(new Sudoku(), Integer.MAX_VALUE, false);
+            assertTrue(type + " finished", solver.isInterrupted());
+        }
+    }
+
+    @Test
+    public void stepBudgetStopsEverySolver() {
+        for (Solver.Type type : Solver.Type.values()) {
+            Solver solver = type.create();
+            solver.setBudget(SolveBudget.ofSteps(1000));
+            solver.solve(new Sudoku(), Integer.MAX_VALUE, false);
+            assertTrue(type + " finished", solver.isInterrupted());
+        }
+    }
+
+    @Test
+    public void unlimitedSolveIsComplete() {
+        for (Solver.Type type : Solver.Type.values()) {
+            Sudoku game = new Sudoku();
+            game.parseFromFile(Paths.get("src/main/resources/games/sudoku1.sd"));
+            assertTrue(type + " interrupted", game.solve(type.create(), 2, SolveBudget.UNLIMITED).isComplete());
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SolverServerTest {
+
+    private static final String GAME =
+            "...187..44....53.....6......6......3.31769...7.......1..5.....78..91.4...9...4...";
+    /** valid line without a solution, field 5x8 has no candidate */
+    private static final String UNSOLVABLE =
+            ".....6..76....84.......2......2....8..........64..........35............4917.....";
+
+    @Test
+    public void generateIgnoresBudgetOfEarlierSolve() throws IOException {
+        SolveBudget budget = Ranker.getSolveBudget();
+        try (SolverServer server = new SolverServer(0, 1, 1)) {
+            Ranker.setSolveBudget(new SolveBudget(0, 1, null));
+            assertEquals("timeout", server.processRequest("SOLVE " + GAME));
+            Ranker.setSolveBudget(SolveBudget.UNLIMITED);
+            String answer = server.processRequest("GENERATE " + GAME + " 5");
+            assertEquals(81, answer.length());
+        } finally {
+            Ranker.setSolveBudget(budget);
+        }
+    }
+
+    @Test
+    public void unsolvableBaseIsAnsweredWithError() throws IOException {
+        try (SolverServer server = new SolverServer(0, 1, 1)) {
+            assertTrue(server.processRequest("GENERATE " + UNSOLVABLE + " 5").startsWith("error"));
+        }
+    }
+
+    @Test
+    public void cancelledRequestsStop() throws IOException {
+        String empty = new Sudoku().toLine();
+        try (SolverServer server = new SolverServer(0, 1, 1)) {
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+            assertEquals("timeout", server.processRequest("COUNT " + empty + " 100000000", token));
+            assertEquals("timeout", server.processRequest("GENERATE " + GAME, token));
+        }
+    }
+
+    @Test
+    public void cancelledGeneratorReturnsBase() {
+        Sudoku game = new Sudoku();
+        game.parseFromLine(GAME);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        Sudoku generated = Generator.run(game, Integer.MAX_VALUE, new Random(1), token);
+        assertEquals(0, generated.countFreeFields());
+        generated = Generator.runChains(game, Integer.MAX_VALUE, 2, 1, token);
+        assertEquals(0, generated.countFreeFields());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void generatorRejectsUnsolvableBase() {
+        Sudoku game = new Sudoku();
+        game.parseFromLine(UNSOLVABLE);
+        Generator.run(game, 5);
+    }
+
+}
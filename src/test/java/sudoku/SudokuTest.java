@@ -0,0 +1,43 @@
+package sudoku;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SudokuTest {
+
+    private static final Path GAMES = Paths.get("src/main/resources/games");
+
+    @Test
+    public void fillNonInitialOverwritesOtherSolution() {
+        // sudoku7 has several solutions
+        Sudoku game = new Sudoku();
+        game.parseFromFile(GAMES.resolve("sudoku7.sd"));
+        List<int[]> solutions = new ArrayList<>();
+        game.forEachSolution(new MaskSolver(), 2, values -> solutions.add(values.clone()));
+        assertEquals(2, solutions.size());
+
+        Sudoku board = new Sudoku(game);
+        board.fillNonInitial(solutions.get(0));
+        board.fillNonInitial(solutions.get(1));
+        Sudoku fresh = new Sudoku(game);
+        fresh.fillNonInitial(solutions.get(1));
+        assertEquals(fresh.toLine(), board.toLine());
+        assertArrayEquals(candidates(fresh), candidates(board));
+    }
+
+    private static int[] candidates(Sudoku game) {
+        int[] candidates = new int[game.getCellCount()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = game.getCandidates(i % game.getGridDim(), i / game.getGridDim());
+        }
+        return candidates;
+    }
+
+}
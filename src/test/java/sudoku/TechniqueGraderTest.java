@@ -0,0 +1,38 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TechniqueGraderTest {
+
+    private static TechniqueGrader.Grade grade(String line) {
+        Sudoku game = new Sudoku();
+        game.parseFromLine(line);
+        return new TechniqueGrader().grade(game);
+    }
+
+    @Test
+    public void findsPlainNakedPair() {
+        // gets stuck without a naked pair whose two cells are the only bivalue cells of their unit
+        TechniqueGrader.Grade grade = grade(
+                "...187..44....53.....6......6......3.31769...7.......1..5.....78..91.4...9...4...");
+        assertTrue(grade.isSolved());
+        assertEquals(TechniqueGrader.Technique.NAKED_PAIR, grade.getHardest());
+        assertTrue(grade.getCount(TechniqueGrader.Technique.NAKED_PAIR) > 0);
+    }
+
+    @Test
+    public void emptyCellWithoutCandidatesIsContradiction() {
+        // the empty cell at 5x8 has no candidates,
+        // but every unit still has room for its missing digits
+        TechniqueGrader.Grade grade = grade(
+                ".....6..76....84.......2......2....8..........64..........35............4917.....");
+        assertTrue(grade.isContradiction());
+        assertFalse(grade.isSolved());
+        assertEquals(Float.MAX_VALUE, Ranker.calculateRank(grade, 65, Sudoku.CELL_COUNT), 0f);
+    }
+
+}